@@ -0,0 +1,144 @@
+package com.example.roomwordsample;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Frame-time harness for flinging through a long word list, run on a device.
+ *
+ * Fills the app database with -e words N rows (100k by default; this replaces what is on the
+ * device), opens MainActivity and flings the list down -e flings N times (20 by default),
+ * recording FrameMetrics for every frame. The percentiles and the share of frames over the
+ * 60 Hz budget are written to files/frame-times.json in the app's data directory and reported
+ * as instrumentation status, so runs before and after a change can be compared.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WordListFrameTimeTest {
+	
+	private static final long FRAME_BUDGET_NANOS = 16_666_667;
+	private static final int FLING_VELOCITY = 8000;
+	private static final int FILL_CHUNK = 10_000;
+	private static final long SETTLE_TIMEOUT_MILLIS = 10_000;
+	
+	@Test
+	public void flingFrameTimes() throws Exception {
+		assumeTrue("FrameMetrics needs API 24", Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+		Bundle arguments = InstrumentationRegistry.getArguments();
+		int words = Integer.parseInt(arguments.getString("words", "100000"));
+		int flings = Integer.parseInt(arguments.getString("flings", "20"));
+		Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+		fill(context, words);
+		
+		final List<Long> frameNanos = new ArrayList<>();
+		HandlerThread metricsThread = new HandlerThread("frame-metrics");
+		metricsThread.start();
+		final Handler metricsHandler = new Handler(metricsThread.getLooper());
+		final Window.OnFrameMetricsAvailableListener listener = (window, metrics, dropped) -> {
+			synchronized (frameNanos) {
+				frameNanos.add(metrics.getMetric(FrameMetrics.TOTAL_DURATION));
+			}
+		};
+		
+		try (ActivityScenario<MainActivity> scenario = ActivityScenario.launch(MainActivity.class)) {
+			waitUntilIdle(scenario);
+			scenario.onActivity(activity -> activity.getWindow().addOnFrameMetricsAvailableListener(listener, metricsHandler));
+			for (int i = 0; i < flings; i++) {
+				scenario.onActivity(activity -> recyclerView(activity).fling(0, FLING_VELOCITY));
+				waitUntilIdle(scenario);
+			}
+			scenario.onActivity(activity -> activity.getWindow().removeOnFrameMetricsAvailableListener(listener));
+		} finally {
+			metricsThread.quitSafely();
+		}
+		
+		long[] sorted;
+		synchronized (frameNanos) {
+			sorted = new long[frameNanos.size()];
+			for (int i = 0; i < sorted.length; i++) sorted[i] = frameNanos.get(i);
+		}
+		assertTrue("No frames were recorded", sorted.length > 0);
+		Arrays.sort(sorted);
+		report(context, words, flings, sorted);
+	}
+	
+	private static void fill(Context context, int words) {
+		WordRoomDatabase db = WordRoomDatabase.getDatabase(context);
+		WordDao dao = db.wordDao();
+		db.runInTransaction(() -> {
+			dao.deleteAll();
+			for (int from = 0; from < words; from += FILL_CHUNK) {
+				ArrayList<Word> chunk = new ArrayList<>(FILL_CHUNK);
+				for (long i = from; i < Math.min(words, from + FILL_CHUNK); i++) {
+					chunk.add(new Word("w" + Long.toString((i * 2654435761L) & 0xffffffffL, 36)));
+				}
+				dao.insertAll(chunk);
+			}
+		});
+	}
+	
+	private static RecyclerView recyclerView(Activity activity) {
+		return activity.findViewById(R.id.recyclerview);
+	}
+	
+	/*Polls until the list has stopped scrolling.*/
+	private static void waitUntilIdle(ActivityScenario<MainActivity> scenario) throws InterruptedException {
+		final AtomicInteger state = new AtomicInteger();
+		long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT_MILLIS;
+		do {
+			Thread.sleep(100);
+			InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+			scenario.onActivity(activity -> state.set(recyclerView(activity).getScrollState()));
+		} while (state.get() != RecyclerView.SCROLL_STATE_IDLE && System.currentTimeMillis() < deadline);
+	}
+	
+	private static void report(Context context, int words, int flings, long[] sorted) throws IOException {
+		int janky = 0;
+		for (long nanos : sorted) if (nanos > FRAME_BUDGET_NANOS) janky++;
+		String json = String.format(Locale.US,
+				"{\"words\":%d,\"flings\":%d,\"frames\":%d,\"p50_ms\":%.2f,\"p90_ms\":%.2f,\"p95_ms\":%.2f,"
+						+ "\"p99_ms\":%.2f,\"max_ms\":%.2f,\"janky_percent\":%.2f}",
+				words, flings, sorted.length, percentile(sorted, 0.5), percentile(sorted, 0.9),
+				percentile(sorted, 0.95), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6,
+				100.0 * janky / sorted.length);
+		File file = new File(context.getFilesDir(), "frame-times.json");
+		try (Writer out = new FileWriter(file)) {
+			out.write(json);
+			out.write('\n');
+		}
+		Bundle status = new Bundle();
+		status.putString("frame-times", json);
+		InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+	}
+	
+	private static double percentile(long[] sorted, double fraction) {
+		int index = Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1);
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+}
@@ -0,0 +1,99 @@
+package com.example.roomwordsample;
+
+import android.database.Cursor;
+
+import androidx.room.testing.MigrationTestHelper;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Upgrades a version 1 database to the current schema with every Migration, checks it against
+ * the exported schema, then runs the sort_key backfill the way WordBackgroundMigrator does:
+ * the keys stay aside until the cut-over, then all rows get theirs at once.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WordMigrationTest {
+	
+	private static final String TEST_DB = "word-migration-test";
+	// More than one backfill chunk.
+	private static final int WORDS = 2500;
+	
+	@Rule
+	public final MigrationTestHelper mHelper = new MigrationTestHelper(
+			InstrumentationRegistry.getInstrumentation(),
+			WordRoomDatabase.class.getCanonicalName(),
+			new FrameworkSQLiteOpenHelperFactory());
+	
+	@Test
+	public void migrate1To6() throws IOException {
+		SupportSQLiteDatabase db = mHelper.createDatabase(TEST_DB, 1);
+		db.beginTransaction();
+		for (int i = 0; i < WORDS; i++) {
+			db.execSQL("INSERT INTO word_table (word) VALUES (?)", new Object[]{word(i)});
+		}
+		db.setTransactionSuccessful();
+		db.endTransaction();
+		db.close();
+		
+		db = mHelper.runMigrationsAndValidate(TEST_DB, 6, true,
+				WordRoomDatabase.MIGRATION_1_2, WordRoomDatabase.MIGRATION_2_3, WordRoomDatabase.MIGRATION_3_4,
+				WordRoomDatabase.MIGRATION_4_5, WordRoomDatabase.MIGRATION_5_6);
+		assertEquals(WORDS, count(db, "SELECT COUNT(*) FROM word_table WHERE sort_key = ''"));
+		assertEquals(1, count(db, "SELECT COUNT(*) FROM background_migration WHERE name = 'sort_key_backfill'"));
+		
+		for (String trigger : WordSectionIndex.TRIGGERS) db.execSQL(trigger);
+		long position = WordBackgroundMigrator.START;
+		boolean inserted = false;
+		while (true) {
+			db.beginTransaction();
+			position = WordRoomDatabase.SORT_KEY_BACKFILL.runChunk(db, position);
+			if (position == WordBackgroundMigrator.DONE) break;
+			db.setTransactionSuccessful();
+			db.endTransaction();
+			// Readers still see the old layout: every key is empty, the list is in word order.
+			assertEquals(0, count(db, "SELECT COUNT(*) FROM word_table WHERE sort_key != ''"));
+			if (!inserted) {
+				// A word inserted with its key mid-way reads as '' too, its key waits aside.
+				db.execSQL("INSERT INTO word_table (word, sort_key) VALUES ('Zebra', 'zebra')");
+				assertEquals(0, count(db, "SELECT COUNT(*) FROM word_table WHERE sort_key != ''"));
+				inserted = true;
+			}
+		}
+		WordRoomDatabase.SORT_KEY_BACKFILL.cutOver(db);
+		db.setTransactionSuccessful();
+		db.endTransaction();
+		
+		assertEquals(0, count(db, "SELECT COUNT(*) FROM word_table WHERE sort_key = ''"));
+		assertEquals(WORDS + 1, count(db, "SELECT COUNT(*) FROM word_table WHERE sort_key = lower(word)"));
+		// The section counts followed the keys, and word_fts still has every word.
+		assertEquals(0, count(db, "SELECT COUNT(*) FROM word_section_count WHERE section = '' AND count != 0"));
+		assertEquals(WORDS + 1, count(db, "SELECT SUM(count) FROM word_section_count"));
+		assertEquals(WORDS, count(db, "SELECT COUNT(*) FROM word_fts WHERE word_fts MATCH 'word*'"));
+		assertEquals(1, count(db, "SELECT COUNT(*) FROM word_fts WHERE word_fts MATCH 'zebra'"));
+		// The pending trigger and the side table went with the cut-over.
+		assertEquals(0, count(db, "SELECT COUNT(*) FROM sqlite_master "
+				+ "WHERE name IN ('word_sort_key_pending', 'word_sort_key_backfill')"));
+		db.close();
+	}
+	
+	private static String word(int i) {
+		return (i % 2 == 0 ? "Word" : "word") + i;
+	}
+	
+	private static long count(SupportSQLiteDatabase db, String sql) {
+		try (Cursor cursor = db.query(sql)) {
+			cursor.moveToFirst();
+			return cursor.getLong(0);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.example.roomwordsample;
+
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/* An immutable word list stored as one shared char array plus an int offset per row,
+   instead of a Word and a String per row. At a million rows that is the characters and
+   4 bytes per row, where a List<Word> adds roughly 100 bytes of headers and references.
+
+   Nothing is allocated per row to hold or display the list: WordListAdapter binds straight
+   from the array with TextView.setText(char[], int, int), and equalsAt() compares rows in
+   place for diffing. get() still works for code that wants a List<Word>, but creates the
+   Word (and its String) on every call.*/
+final class CompactWordList extends AbstractList<Word> {
+	
+	static final CompactWordList EMPTY = new CompactWordList(new char[0], new int[]{0}, 0);
+	
+	private final char[] mChars;
+	private final int[] mOffsets; // row i is mChars[mOffsets[i] .. mOffsets[i + 1])
+	private final int mSize;
+	
+	private CompactWordList(char[] chars, int[] offsets, int size) {
+		mChars = chars;
+		mOffsets = offsets;
+		mSize = size;
+	}
+	
+	static CompactWordList copyOf(List<Word> words) {
+		if (words instanceof CompactWordList) return (CompactWordList) words;
+		Builder builder = new Builder(words.size(), 0);
+		for (Word word : words) builder.append(word.getWord());
+		return builder.build();
+	}
+	
+	/*Reads column 0 of every row, copying the text through one reusable buffer.*/
+	static CompactWordList fromCursor(Cursor cursor) {
+		Builder builder = new Builder(cursor.getCount(), 0);
+		CharArrayBuffer buffer = new CharArrayBuffer(64);
+		while (cursor.moveToNext()) {
+			cursor.copyStringToBuffer(0, buffer);
+			builder.append(buffer.data, buffer.sizeCopied);
+		}
+		return builder.build();
+	}
+	
+	@Override
+	public int size() {return mSize;}
+	
+	@Override
+	public Word get(int index) {
+		return new Word(getString(index));
+	}
+	
+	String getString(int index) {
+		return new String(mChars, start(index), length(index));
+	}
+	
+	/*The shared array; read rows with start() and length() and never write to it.*/
+	char[] chars() {return mChars;}
+	
+	int start(int index) {
+		checkIndex(index);
+		return mOffsets[index];
+	}
+	
+	int length(int index) {
+		checkIndex(index);
+		return mOffsets[index + 1] - mOffsets[index];
+	}
+	
+	boolean equalsAt(int index, CompactWordList other, int otherIndex) {
+		int length = length(index);
+		if (length != other.length(otherIndex)) return false;
+		int from = mOffsets[index];
+		int otherFrom = other.mOffsets[otherIndex];
+		for (int i = 0; i < length; i++) {
+			if (mChars[from + i] != other.mChars[otherFrom + i]) return false;
+		}
+		return true;
+	}
+	
+	/*Heap held by the list: both arrays with their headers.*/
+	long sizeBytes() {
+		return 16 + 2L * mChars.length + 16 + 4L * mOffsets.length;
+	}
+	
+	private void checkIndex(int index) {
+		if (index < 0 || index >= mSize) throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+	}
+	
+	static final class Builder {
+		private char[] mChars;
+		private int[] mOffsets;
+		private int mSize;
+		
+		Builder(int expectedRows, int expectedChars) {
+			mOffsets = new int[Math.max(16, expectedRows + 1)];
+			mChars = new char[Math.max(64, expectedChars > 0 ? expectedChars : expectedRows * 8)];
+		}
+		
+		Builder append(String word) {
+			int length = word.length();
+			ensureChars(length);
+			word.getChars(0, length, mChars, mOffsets[mSize]);
+			return next(length);
+		}
+		
+		Builder append(char[] chars, int length) {
+			ensureChars(length);
+			System.arraycopy(chars, 0, mChars, mOffsets[mSize], length);
+			return next(length);
+		}
+		
+		/*Trims both arrays to size; the builder must not be used afterwards.*/
+		CompactWordList build() {
+			if (mSize == 0) return EMPTY;
+			int used = mOffsets[mSize];
+			return new CompactWordList(used == mChars.length ? mChars : Arrays.copyOf(mChars, used),
+					mSize + 1 == mOffsets.length ? mOffsets : Arrays.copyOf(mOffsets, mSize + 1), mSize);
+		}
+		
+		private void ensureChars(int length) {
+			int needed = mOffsets[mSize] + length;
+			if (needed > mChars.length) mChars = Arrays.copyOf(mChars, Math.max(needed, mChars.length * 2));
+		}
+		
+		private Builder next(int length) {
+			if (mSize + 2 > mOffsets.length) mOffsets = Arrays.copyOf(mOffsets, mOffsets.length * 2);
+			mOffsets[mSize + 1] = mOffsets[mSize] + length;
+			mSize++;
+			return this;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package com.example.roomwordsample;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* A fixed-size thread pool that keeps counters for sizing it:
+   queue depth, how long tasks wait in the queue and how long they run.
+   With a single thread it runs tasks strictly in submission order.*/
+class InstrumentedExecutor extends ThreadPoolExecutor {
+
+	private final String mName;
+
+	private final AtomicLong mCompleted = new AtomicLong();
+	private final AtomicLong mTotalWaitNanos = new AtomicLong();
+	private final AtomicLong mMaxWaitNanos = new AtomicLong();
+	private final AtomicLong mTotalRunNanos = new AtomicLong();
+	private final AtomicLong mMaxRunNanos = new AtomicLong();
+	private final AtomicInteger mMaxQueueDepth = new AtomicInteger();
+
+	// Start time of the task running on each worker thread, set in beforeExecute.
+	private final ThreadLocal<long[]> mRunStart = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+
+	// Queue wait of the task running on this thread, -1 once taken or outside a task.
+	private static final ThreadLocal<long[]> sCurrentWait = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[]{-1};
+		}
+	};
+
+	InstrumentedExecutor(String name, int threads) {
+		super(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+				newThreadFactory(name));
+		mName = name;
+	}
+
+	private static ThreadFactory newThreadFactory(final String name) {
+		final AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	@Override
+	public void execute(@NonNull Runnable command) {
+		super.execute(new TimedTask(command));
+		updateMax(mMaxQueueDepth, getQueue().size());
+	}
+
+	@Override
+	protected void beforeExecute(Thread thread, Runnable runnable) {
+		super.beforeExecute(thread, runnable);
+		long now = System.nanoTime();
+		if (runnable instanceof TimedTask) {
+			long wait = now - ((TimedTask) runnable).mEnqueuedAt;
+			mTotalWaitNanos.addAndGet(wait);
+			updateMax(mMaxWaitNanos, wait);
+			sCurrentWait.get()[0] = wait;
+		}
+		mRunStart.get()[0] = now;
+	}
+
+	@Override
+	protected void afterExecute(Runnable runnable, Throwable throwable) {
+		super.afterExecute(runnable, throwable);
+		sCurrentWait.get()[0] = -1;
+		long run = System.nanoTime() - mRunStart.get()[0];
+		mTotalRunNanos.addAndGet(run);
+		updateMax(mMaxRunNanos, run);
+		mCompleted.incrementAndGet();
+	}
+
+	/*How long the task running on the calling thread waited in its queue, or -1 if the caller
+	isn't running in an InstrumentedExecutor. Only the first call in a task gets the value, so
+	the wait is attributed once.*/
+	static long takeCurrentTaskWaitNanos() {
+		long[] wait = sCurrentWait.get();
+		long value = wait[0];
+		wait[0] = -1;
+		return value;
+	}
+	
+	Stats getStats() {
+		return new Stats(mName, getQueue().size(), mMaxQueueDepth.get(), mCompleted.get(),
+				mTotalWaitNanos.get(), mMaxWaitNanos.get(), mTotalRunNanos.get(), mMaxRunNanos.get());
+	}
+
+	private static void updateMax(AtomicLong max, long value) {
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) { }
+	}
+
+	private static void updateMax(AtomicInteger max, int value) {
+		int current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) { }
+	}
+
+	private static final class TimedTask implements Runnable {
+		final Runnable mDelegate;
+		final long mEnqueuedAt = System.nanoTime();
+
+		TimedTask(Runnable delegate) {mDelegate = delegate;}
+
+		@Override
+		public void run() {mDelegate.run();}
+	}
+
+	/*Point-in-time snapshot of the executor counters. Times are in nanoseconds.*/
+	static final class Stats {
+		final String name;
+		final int queueDepth;
+		final int maxQueueDepth;
+		final long completedTasks;
+		final long totalWaitNanos;
+		final long maxWaitNanos;
+		final long totalRunNanos;
+		final long maxRunNanos;
+
+		Stats(String name, int queueDepth, int maxQueueDepth, long completedTasks,
+				long totalWaitNanos, long maxWaitNanos, long totalRunNanos, long maxRunNanos) {
+			this.name = name;
+			this.queueDepth = queueDepth;
+			this.maxQueueDepth = maxQueueDepth;
+			this.completedTasks = completedTasks;
+			this.totalWaitNanos = totalWaitNanos;
+			this.maxWaitNanos = maxWaitNanos;
+			this.totalRunNanos = totalRunNanos;
+			this.maxRunNanos = maxRunNanos;
+		}
+
+		long averageWaitNanos() {return completedTasks == 0 ? 0 : totalWaitNanos / completedTasks;}
+		long averageRunNanos() {return completedTasks == 0 ? 0 : totalRunNanos / completedTasks;}
+
+		@NonNull
+		@Override
+		public String toString() {
+			return String.format(Locale.US,
+					"%s: queue=%d (max %d) tasks=%d wait avg=%.2fms max=%.2fms run avg=%.2fms max=%.2fms",
+					name, queueDepth, maxQueueDepth, completedTasks,
+					averageWaitNanos() / 1e6, maxWaitNanos / 1e6,
+					averageRunNanos() / 1e6, maxRunNanos / 1e6);
+		}
+	}
+}
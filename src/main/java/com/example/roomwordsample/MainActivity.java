@@ -4,6 +4,7 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.lifecycle.Observer;
@@ -18,7 +19,16 @@ import java.util.List;
 public class MainActivity extends AppCompatActivity {
 	
 	public static final int NEW_WORD_ACTIVITY_REQUEST_CODE = 1;
+	// Start fetching the next page when this many rows are left before the window edge.
+	private static final int PREFETCH_DISTANCE = 20;
+	// Rows scrolled just off screen are kept bound, so a short scroll back doesn't rebind them,
+	// and the pool holds enough spare views for a fast fling to never inflate a new one.
+	private static final int ITEM_VIEW_CACHE_SIZE = 10;
+	private static final int RECYCLED_VIEW_POOL_SIZE = 30;
 	private WordViewModel mWordViewModel;
+	private WordListAdapter mAdapter;
+	// The fast-scroller's last jump; the list is replaced when the window shows it.
+	private int mAwaitedJump;
 	
 	private ViewModelProvider viewModelProvider;
 	
@@ -29,29 +39,77 @@ public class MainActivity extends AppCompatActivity {
 		
 		RecyclerView recyclerView = findViewById(R.id.recyclerview);
 		final WordListAdapter adapter = new WordListAdapter(this);
+		mAdapter = adapter;
 		recyclerView.setAdapter(adapter);
-		recyclerView.setLayoutManager(new LinearLayoutManager(this));
+		final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+		// Let the RecyclerView bind the next row in idle frame time (on by default, made explicit).
+		layoutManager.setItemPrefetchEnabled(true);
+		recyclerView.setLayoutManager(layoutManager);
+		// The list's size comes from the layout, not from its contents, and rows have a fixed
+		// height (recyclerview_item), so adapter changes don't trigger a full relayout.
+		recyclerView.setHasFixedSize(true);
+		recyclerView.setItemViewCacheSize(ITEM_VIEW_CACHE_SIZE);
+		recyclerView.getRecycledViewPool().setMaxRecycledViews(0, RECYCLED_VIEW_POOL_SIZE);
 		
 		// Get a new or existing ViewModel from the ViewModelProvider.
 		mWordViewModel = new ViewModelProvider(this).get(WordViewModel.class);
 		
-		// Add an observer on the LiveData returned by getAlphabetizedWords.
+		// Add an observer on the paged window of words.
 		// The onChanged() method fires when the observed data changes and the activity is
 		// in the foreground.
-		mWordViewModel.getAllWords().observe(this, new Observer<List<Word>>() {
+		mWordViewModel.getWordWindow().observe(this, new Observer<List<Word>>() {
 			@Override
 			public void onChanged(@Nullable final List<Word> words) {
 				// Update the cached copy of the words in the adapter.
 				adapter.setWords(words);
+				if (words != null && !words.isEmpty()) WordDatabaseWarmUp.onFirstRowsShown();
 			}
 		});
 		
+		// Page more rows in as the user scrolls towards either edge of the window.
+		recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+			@Override
+			public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+				adapter.onVisibleRangeChanged(layoutManager.findFirstVisibleItemPosition(),
+						layoutManager.findLastVisibleItemPosition(), dy);
+				if (dy > 0 && layoutManager.findLastVisibleItemPosition()
+						>= adapter.getItemCount() - PREFETCH_DISTANCE) {
+					mWordViewModel.loadAfter();
+				} else if (dy < 0 && layoutManager.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+					mWordViewModel.loadBefore();
+				}
+			}
+		});
+		
+		// Jump straight to a letter: the window is re-read from there with one keyset seek.
+		final WordSectionBar sectionBar = findViewById(R.id.section_bar);
+		mWordViewModel.getSectionIndex().observe(this, sectionBar::setIndex);
+		sectionBar.setListener((index, section) ->
+				mAwaitedJump = mWordViewModel.jumpToSection(index, section));
+		// Other windows (a refresh, a page loaded meanwhile) may arrive first; only the jump's
+		// own result replaces the list. It is posted after its window, which is already shown.
+		mWordViewModel.getJumps().observe(this, generation -> {
+			if (generation == null || generation != mAwaitedJump) return;
+			adapter.replaceWords(mWordViewModel.getWordWindow().getValue());
+			layoutManager.scrollToPositionWithOffset(0, 0);
+		});
+		
 		FloatingActionButton fab = findViewById(R.id.fab);
 		fab.setOnClickListener(view -> {
 			Intent intent = new Intent(MainActivity.this, NewWordActivity.class);
 			startActivityForResult(intent, NEW_WORD_ACTIVITY_REQUEST_CODE);
 		});
 	}
+	
+	@Override
+	public void onTrimMemory(int level) {
+		super.onTrimMemory(level);
+		// The precomputed rows belong to this screen; the repository's caches get the
+		// application's callback (WordMemoryGovernor).
+		WordMemoryGovernor.Pressure pressure = WordMemoryGovernor.pressureOf(level);
+		mAdapter.onTrimMemory(WordMemoryGovernor.get().getBudget(pressure));
+	}
+	
 	public void onActivityResult(int requestCode, int resultCode, Intent data) {
 		super.onActivityResult(requestCode, resultCode, data);
 		
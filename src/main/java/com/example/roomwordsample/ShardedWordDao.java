@@ -0,0 +1,329 @@
+package com.example.roomwordsample;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/* WordDao over every shard of WordShards.
+   Writes are split by shard and each part runs on that shard's own writer, so the parts
+   commit in parallel; the call returns once all of them have. A batch is one transaction
+   per shard, not one overall.
+   Reads run on every shard in parallel. Each shard returns its rows already in list order
+   from its own index, so ordered reads are a k-way merge of k sorted runs, cut at the limit:
+   a page costs k index seeks of limit rows each, however large the shards are.
+   Row ids from insertAll are per shard and only mean something as "-1 or not".*/
+final class ShardedWordDao implements WordDao {
+	
+	private interface ShardCall<T> {
+		T call(int shard, WordDao dao);
+	}
+	
+	private interface Combiner<T> {
+		T combine(List<T> perShard);
+	}
+	
+	private final WordShards mShards;
+	
+	ShardedWordDao(WordShards shards) {
+		mShards = shards;
+	}
+	
+	/* ---- writes ---- */
+	
+	@Override
+	public void insert(Word word) {
+		final int shard = mShards.shardOf(word);
+		await(Collections.singletonList(mShards.writeExecutor(shard).submit(() -> {
+			mShards.database(shard).wordDao().insert(word);
+			return null;
+		})));
+	}
+	
+	@Override
+	public long[] insertAll(List<Word> words) {
+		int count = mShards.count();
+		List<List<Word>> parts = new ArrayList<>(count);
+		List<List<Integer>> positions = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			parts.add(new ArrayList<>());
+			positions.add(new ArrayList<>());
+		}
+		for (int i = 0; i < words.size(); i++) {
+			int shard = mShards.shardOf(words.get(i));
+			parts.get(shard).add(words.get(i));
+			positions.get(shard).add(i);
+		}
+		ArrayList<Future<long[]>> futures = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			final List<Word> part = parts.get(i);
+			final WordDao dao = mShards.database(i).wordDao();
+			futures.add(part.isEmpty() ? null : mShards.writeExecutor(i).submit(() -> dao.insertAll(part)));
+		}
+		long[] rowIds = new long[words.size()];
+		for (int i = 0; i < count; i++) {
+			if (futures.get(i) == null) continue;
+			long[] shardRowIds = await(Collections.singletonList(futures.get(i))).get(0);
+			List<Integer> shardPositions = positions.get(i);
+			for (int j = 0; j < shardRowIds.length; j++) rowIds[shardPositions.get(j)] = shardRowIds[j];
+		}
+		return rowIds;
+	}
+	
+	@Override
+	public int deleteAll() {
+		return sum(onEveryShard(true, (shard, dao) -> dao.deleteAll()));
+	}
+	
+	/*At most limit rows per shard, so each statement stays as short as on a single file.*/
+	@Override
+	public int deleteSome(int limit) {
+		return sum(onEveryShard(true, (shard, dao) -> dao.deleteSome(limit)));
+	}
+	
+	@Override
+	public int deleteRange(String fromSortKey, String fromWord, String toSortKey, String toWord, int limit) {
+		return sum(onEveryShard(true, (shard, dao) -> dao.deleteRange(fromSortKey, fromWord, toSortKey, toWord, limit)));
+	}
+	
+	@Override
+	public int deleteWords(List<String> words) {
+		final List<List<String>> parts = byShard(words);
+		return sum(onEveryShard(true, (shard, dao) -> {
+			List<String> part = parts.get(shard);
+			return part.isEmpty() ? 0 : dao.deleteWords(part);
+		}));
+	}
+	
+	/* ---- reads ---- */
+	
+	@Override
+	public LiveData<List<Word>> getAlphabetizedWords() {
+		List<LiveData<List<Word>>> sources = new ArrayList<>(mShards.count());
+		for (int i = 0; i < mShards.count(); i++) sources.add(mShards.database(i).wordDao().getAlphabetizedWords());
+		return mergedLiveData(sources, Integer.MAX_VALUE);
+	}
+	
+	@Override
+	public List<Word> loadAlphabetizedWords() {
+		return merge(onEveryShard(false, (shard, dao) -> dao.loadAlphabetizedWords()),
+				WordSortKey.ORDER, Integer.MAX_VALUE);
+	}
+	
+	/*The merged list copied into a MatrixCursor: the shards' cursors can't be merged in place.*/
+	@Override
+	public Cursor loadAlphabetizedWordCursor() {
+		List<Word> words = loadAlphabetizedWords();
+		MatrixCursor cursor = new MatrixCursor(new String[]{"word"}, words.size());
+		for (Word word : words) cursor.addRow(new Object[]{word.getWord()});
+		return cursor;
+	}
+	
+	@Override
+	public List<String> findExistingWords(List<String> words) {
+		final List<List<String>> parts = byShard(words);
+		List<String> existing = new ArrayList<>();
+		for (List<String> shardExisting : onEveryShard(false, (shard, dao) -> {
+			List<String> part = parts.get(shard);
+			return part.isEmpty() ? Collections.<String>emptyList() : dao.findExistingWords(part);
+		})) {
+			existing.addAll(shardExisting);
+		}
+		return existing;
+	}
+	
+	/*The merged page copied into a MatrixCursor, like loadAlphabetizedWordCursor().*/
+	@Override
+	public Cursor getWordCursorAfter(String lastSortKey, String lastWord, int limit) {
+		List<Word> words = getWordsAfter(lastSortKey, lastWord, limit);
+		MatrixCursor cursor = new MatrixCursor(new String[]{"word", "sort_key"}, words.size());
+		for (Word word : words) cursor.addRow(new Object[]{word.getWord(), word.getSortKey()});
+		return cursor;
+	}
+	
+	@Override
+	public List<String> getWordKeysAfter(String after, int limit) {
+		return merge(onEveryShard(false, (shard, dao) -> dao.getWordKeysAfter(after, limit)),
+				WordSortKey::compareBinary, limit);
+	}
+	
+	@Override
+	public List<Word> getFirstWords(int limit) {
+		return merge(onEveryShard(false, (shard, dao) -> dao.getFirstWords(limit)), WordSortKey.ORDER, limit);
+	}
+	
+	@Override
+	public List<Word> getWordsAfter(String lastSortKey, String lastWord, int limit) {
+		return merge(onEveryShard(false, (shard, dao) -> dao.getWordsAfter(lastSortKey, lastWord, limit)),
+				WordSortKey.ORDER, limit);
+	}
+	
+	@Override
+	public List<Word> getWordsBefore(String firstSortKey, String firstWord, int limit) {
+		// Each shard returns its rows nearest first, so the merge runs in reverse too.
+		return merge(onEveryShard(false, (shard, dao) -> dao.getWordsBefore(firstSortKey, firstWord, limit)),
+				Collections.reverseOrder(WordSortKey.ORDER), limit);
+	}
+	
+	@Override
+	public List<Word> getWordsFrom(String firstSortKey, String firstWord, int limit) {
+		return merge(onEveryShard(false, (shard, dao) -> dao.getWordsFrom(firstSortKey, firstWord, limit)),
+				WordSortKey.ORDER, limit);
+	}
+	
+	@Override
+	public LiveData<List<Word>> searchByPrefix(String prefixSortKey, int limit) {
+		List<LiveData<List<Word>>> sources = new ArrayList<>(mShards.count());
+		for (int i = 0; i < mShards.count(); i++) sources.add(mShards.database(i).wordDao().searchByPrefix(prefixSortKey, limit));
+		return mergedLiveData(sources, limit);
+	}
+	
+	@Override
+	public LiveData<List<Word>> searchByPhrasePrefix(String phrase, int limit) {
+		List<LiveData<List<Word>>> sources = new ArrayList<>(mShards.count());
+		for (int i = 0; i < mShards.count(); i++) sources.add(mShards.database(i).wordDao().searchByPhrasePrefix(phrase, limit));
+		return mergedLiveData(sources, limit);
+	}
+	
+	@Override
+	public int countWords() {
+		return sum(onEveryShard(false, (shard, dao) -> dao.countWords()));
+	}
+	
+	@Override
+	public LiveData<List<WordSectionCount>> getSectionCounts() {
+		List<LiveData<List<WordSectionCount>>> sources = new ArrayList<>(mShards.count());
+		for (int i = 0; i < mShards.count(); i++) sources.add(mShards.database(i).wordDao().getSectionCounts());
+		return combinedLiveData(sources, ShardedWordDao::addSectionCounts);
+	}
+	
+	@Override
+	public List<WordSectionCount> loadSectionCounts() {
+		return addSectionCounts(onEveryShard(false, (shard, dao) -> dao.loadSectionCounts()));
+	}
+	
+	@Override
+	public int getTotalCount() {
+		return sum(onEveryShard(false, (shard, dao) -> dao.getTotalCount()));
+	}
+	
+	/* ---- helpers ---- */
+	
+	/*Runs the call on every shard at once, on its writer or on the fan-out pool, and
+	returns the results in shard order.*/
+	private <T> List<T> onEveryShard(boolean write, final ShardCall<T> call) {
+		ArrayList<Future<T>> futures = new ArrayList<>(mShards.count());
+		for (int i = 0; i < mShards.count(); i++) {
+			final int shard = i;
+			final WordDao dao = mShards.database(i).wordDao();
+			ExecutorService executor = write ? mShards.writeExecutor(i) : mShards.fanOutExecutor();
+			futures.add(executor.submit(() -> call.call(shard, dao)));
+		}
+		return await(futures);
+	}
+	
+	private static <T> List<T> await(List<Future<T>> futures) {
+		ArrayList<T> results = new ArrayList<>(futures.size());
+		try {
+			for (Future<T> future : futures) results.add(future.get());
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+		return results;
+	}
+	
+	private List<List<String>> byShard(List<String> words) {
+		List<List<String>> parts = new ArrayList<>(mShards.count());
+		for (int i = 0; i < mShards.count(); i++) parts.add(new ArrayList<>());
+		for (String word : words) parts.get(mShards.shardOf(new Word(word))).add(word);
+		return parts;
+	}
+	
+	private static int sum(List<Integer> counts) {
+		int total = 0;
+		for (int count : counts) total += count;
+		return total;
+	}
+	
+	/*Merges runs that are each sorted by order, stopping after limit items.*/
+	static <T> List<T> merge(final List<List<T>> runs, final Comparator<? super T> order, int limit) {
+		int total = 0;
+		for (List<T> run : runs) total += run.size();
+		ArrayList<T> merged = new ArrayList<>(Math.min(total, limit));
+		// Each entry is {run, next index in it}.
+		PriorityQueue<int[]> queue = new PriorityQueue<>(Math.max(1, runs.size()),
+				(a, b) -> order.compare(runs.get(a[0]).get(a[1]), runs.get(b[0]).get(b[1])));
+		for (int i = 0; i < runs.size(); i++) if (!runs.get(i).isEmpty()) queue.add(new int[]{i, 0});
+		while (merged.size() < limit && !queue.isEmpty()) {
+			int[] head = queue.poll();
+			List<T> run = runs.get(head[0]);
+			merged.add(run.get(head[1]));
+			if (++head[1] < run.size()) queue.add(head);
+		}
+		return merged;
+	}
+	
+	/*Sums the shards' counts per section; with BY_HASH every shard has every section.*/
+	private static List<WordSectionCount> addSectionCounts(List<List<WordSectionCount>> perShard) {
+		TreeMap<String, Integer> counts = new TreeMap<>(WordSortKey::compareBinary);
+		for (List<WordSectionCount> shardCounts : perShard) {
+			for (WordSectionCount count : shardCounts) {
+				Integer previous = counts.get(count.getSection());
+				counts.put(count.getSection(), count.getCount() + (previous == null ? 0 : previous));
+			}
+		}
+		ArrayList<WordSectionCount> sum = new ArrayList<>(counts.size());
+		for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+			sum.add(new WordSectionCount(entry.getKey(), entry.getValue()));
+		}
+		return sum;
+	}
+	
+	private LiveData<List<Word>> mergedLiveData(List<LiveData<List<Word>>> sources, final int limit) {
+		return combinedLiveData(sources, runs -> merge(runs, WordSortKey.ORDER, limit));
+	}
+	
+	/*Re-combines the shards' latest values whenever one of them emits, once every shard has
+	emitted at least once. The combiner runs off the main thread; a result that finishes after
+	a newer one started is dropped, so values are never posted out of order.*/
+	private <T> LiveData<T> combinedLiveData(List<LiveData<T>> sources, final Combiner<T> combiner) {
+		final MediatorLiveData<T> merged = new MediatorLiveData<>();
+		final List<T> latest = new ArrayList<>(Collections.<T>nCopies(sources.size(), null));
+		final int[] generation = {0};
+		for (int i = 0; i < sources.size(); i++) {
+			final int shard = i;
+			merged.addSource(sources.get(i), value -> {
+				latest.set(shard, value);
+				if (latest.contains(null)) return;
+				final List<T> values = new ArrayList<>(latest);
+				final int current;
+				synchronized (generation) {
+					current = ++generation[0];
+				}
+				mShards.fanOutExecutor().execute(() -> {
+					T result = combiner.combine(values);
+					synchronized (generation) {
+						if (current == generation[0]) merged.postValue(result);
+					}
+				});
+			});
+		}
+		return merged;
+	}
+}
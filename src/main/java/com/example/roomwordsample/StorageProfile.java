@@ -0,0 +1,127 @@
+package com.example.roomwordsample;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.Locale;
+
+/* SQLite storage settings for WordRoomDatabase.
+   The journal mode is fixed when the database is built. The PRAGMAs are applied on every
+   open and are switched to INGEST_HEAVY at runtime while a word file is imported (see
+   WordRoomDatabase.beginIngest), then back to the built profile.
+   PRAGMAs are per connection, and both the open callback and a runtime switch only reach
+   the primary (writer) connection; the framework opens the WAL reader connections itself,
+   with its own defaults, and offers no hook to configure them. So a profile only holds what
+   matters to the writer: synchronous, its page cache and wal_autocheckpoint.*/
+final class StorageProfile {
+	
+	enum Synchronous {OFF, NORMAL, FULL}
+	
+	/*Bulk writes: WAL with NORMAL sync (no fsync per commit, only at checkpoints), a large
+	writer page cache and rare checkpoints so long ingests aren't interrupted by them.*/
+	static final StorageProfile INGEST_HEAVY = new Builder("ingest-heavy")
+			.setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+			.setSynchronous(Synchronous.NORMAL)
+			.setCacheSizeKib(16 * 1024)
+			.setWalAutoCheckpointPages(10_000)
+			.build();
+	
+	/*Browsing: WAL so reads never wait for a writer, and frequent checkpoints to keep the
+	WAL file (which every reader consults) short.*/
+	static final StorageProfile READ_HEAVY = new Builder("read-heavy")
+			.setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+			.setSynchronous(Synchronous.NORMAL)
+			.setCacheSizeKib(4 * 1024)
+			.setWalAutoCheckpointPages(500)
+			.build();
+	
+	/*SQLite's own defaults with a rollback journal.*/
+	static final StorageProfile DEFAULT = new Builder("default")
+			.setJournalMode(RoomDatabase.JournalMode.TRUNCATE)
+			.setSynchronous(Synchronous.FULL)
+			.setCacheSizeKib(2 * 1024)
+			.setWalAutoCheckpointPages(1000)
+			.build();
+	
+	final String name;
+	final RoomDatabase.JournalMode journalMode;
+	final Synchronous synchronous;
+	final int cacheSizeKib; // the writer's page cache
+	final int walAutoCheckpointPages;
+	
+	private StorageProfile(Builder builder) {
+		name = builder.mName;
+		journalMode = builder.mJournalMode;
+		synchronous = builder.mSynchronous;
+		cacheSizeKib = builder.mCacheSizeKib;
+		walAutoCheckpointPages = builder.mWalAutoCheckpointPages;
+	}
+	
+	/*Applies the PRAGMAs to the given connection, which should be the writer's.*/
+	void apply(SupportSQLiteDatabase db) {
+		pragma(db, "PRAGMA synchronous = " + synchronous.name());
+		// A negative cache_size is in KiB rather than pages.
+		pragma(db, "PRAGMA cache_size = -" + cacheSizeKib);
+		if (journalMode == RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING) {
+			pragma(db, "PRAGMA wal_autocheckpoint = " + walAutoCheckpointPages);
+		}
+	}
+	
+	/*Applies the PRAGMAs each time Room opens the database.*/
+	RoomDatabase.Callback asCallback() {
+		return new RoomDatabase.Callback() {
+			@Override
+			public void onOpen(@NonNull SupportSQLiteDatabase db) {
+				super.onOpen(db);
+				apply(db);
+			}
+		};
+	}
+	
+	// Some PRAGMAs return a row, which execSQL() rejects, so run them all as queries.
+	private static void pragma(SupportSQLiteDatabase db, String sql) {
+		try (Cursor cursor = db.query(sql)) {
+			cursor.moveToFirst();
+		}
+	}
+	
+	@NonNull
+	@Override
+	public String toString() {
+		return String.format(Locale.US,
+				"%s: journal=%s synchronous=%s cache=%dKiB autocheckpoint=%d",
+				name, journalMode, synchronous, cacheSizeKib, walAutoCheckpointPages);
+	}
+	
+	static final class Builder {
+		private final String mName;
+		private RoomDatabase.JournalMode mJournalMode = RoomDatabase.JournalMode.AUTOMATIC;
+		private Synchronous mSynchronous = Synchronous.FULL;
+		private int mCacheSizeKib = 2 * 1024;
+		private int mWalAutoCheckpointPages = 1000;
+		
+		Builder(String name) {mName = name;}
+		
+		Builder(StorageProfile base, String name) {
+			mName = name;
+			mJournalMode = base.journalMode;
+			mSynchronous = base.synchronous;
+			mCacheSizeKib = base.cacheSizeKib;
+			mWalAutoCheckpointPages = base.walAutoCheckpointPages;
+		}
+		
+		Builder setJournalMode(RoomDatabase.JournalMode journalMode) {mJournalMode = journalMode; return this;}
+		Builder setSynchronous(Synchronous synchronous) {mSynchronous = synchronous; return this;}
+		Builder setCacheSizeKib(int cacheSizeKib) {mCacheSizeKib = cacheSizeKib; return this;}
+		Builder setWalAutoCheckpointPages(int pages) {mWalAutoCheckpointPages = pages; return this;}
+		
+		StorageProfile build() {
+			if (mCacheSizeKib <= 0) throw new IllegalArgumentException("cache size must be positive");
+			if (mWalAutoCheckpointPages < 0) throw new IllegalArgumentException("auto-checkpoint must not be negative");
+			return new StorageProfile(this);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.example.roomwordsample;
+
+import androidx.room.InvalidationTracker;
+
+import java.util.concurrent.Executor;
+
+/* Adds and removes one InvalidationTracker observer off the main thread. Room marks both
+   calls @WorkerThread: once the database is open they sync its tracking triggers, which is
+   SQL. set() records what the owner wants from any thread and sync() applies it on a
+   background one, so calls may run in any order on a pool: the last set() wins.*/
+final class TrackerRegistration {
+	
+	private final InvalidationTracker[] mTrackers;
+	private final InvalidationTracker.Observer mObserver;
+	private volatile boolean mWanted;
+	private boolean mRegistered; // guarded by this
+	
+	TrackerRegistration(InvalidationTracker[] trackers, InvalidationTracker.Observer observer) {
+		mTrackers = trackers;
+		mObserver = observer;
+	}
+	
+	void set(boolean observing) {
+		mWanted = observing;
+	}
+	
+	/*Applies the last set(). Call on a background thread.*/
+	synchronized void sync() {
+		boolean wanted = mWanted;
+		if (wanted == mRegistered) return;
+		for (InvalidationTracker tracker : mTrackers) {
+			if (wanted) {
+				tracker.addObserver(mObserver);
+			} else {
+				tracker.removeObserver(mObserver);
+			}
+		}
+		mRegistered = wanted;
+	}
+	
+	/*set() now and sync() on executor.*/
+	void setInBackground(boolean observing, Executor executor) {
+		set(observing);
+		executor.execute(this::sync);
+	}
+}
@@ -0,0 +1,25 @@
+package com.example.roomwordsample;
+
+import android.app.Application;
+
+public class WordApplication extends Application {
+	
+	private static final long METRICS_DUMP_INTERVAL_MILLIS = 5 * 60 * 1000;
+	// More than 1 splits the words across that many database files (see WordShards).
+	// Fixed per install: the shards don't move words between them.
+	private static final int WORD_SHARDS = 1;
+	
+	@Override
+	public void onCreate() {
+		super.onCreate();
+		// Read when the database is first opened, so set before the warm-up opens it.
+		WordRoomDatabase.setStorageProfile(StorageProfile.READ_HEAVY);
+		if (WORD_SHARDS > 1) WordRoomDatabase.setSharding(WORD_SHARDS, WordShards.Partitioner.BY_FIRST_LETTER);
+		// Open the database in the background while the first activity is being created.
+		WordDatabaseWarmUp.start(this);
+		// Per-query timings go to logcat so slow queries show up in field logs.
+		WordDbMetrics.get().startPeriodicDump(METRICS_DUMP_INTERVAL_MILLIS);
+		// Shrink the word caches when the system runs short of memory, before it kills us.
+		registerComponentCallbacks(WordMemoryGovernor.get());
+	}
+}
@@ -0,0 +1,144 @@
+package com.example.roomwordsample;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/* Runs the heavy part of schema upgrades after the database is open, instead of inside
+   Room's Migration, which blocks the first open for as long as it takes.
+   A Migration does only the cheap, structural part (new columns with defaults, empty
+   tables) and registers the heavy rest as a Step in background_migration. Steps then run
+   here on the write executor, one chunk per transaction, each chunk queued behind the
+   writes already waiting, so inserts keep flowing in between. The step's position is saved
+   in the same transaction as its chunk, so after a crash or a kill it resumes where it
+   stopped, and a chunk is never applied twice.
+   A step whose partial results would show readers a mix of the old and the new layout
+   writes them aside and switches them in with cutOver() at the end, in one transaction, so
+   readers see one layout or the other. Until then isPending() tells readers to expect the
+   old one. A step that fails is logged and left where it was, to be retried on the next start.*/
+final class WordBackgroundMigrator {
+	
+	private static final String TAG = "WordBackgroundMigrator";
+	
+	/*The heavy part of one schema change.*/
+	abstract static class Step {
+		final String name;
+		
+		Step(String name) {this.name = name;}
+		
+		/*Processes the next chunk after position and returns the new position, or DONE
+		when nothing is left. Runs inside the chunk's transaction.*/
+		abstract long runChunk(SupportSQLiteDatabase db, long position);
+		
+		/*Makes the result visible to readers. Runs in one transaction with the last chunk,
+		holding the writer for as long as it takes.*/
+		abstract void cutOver(SupportSQLiteDatabase db);
+	}
+	
+	static final long DONE = Long.MAX_VALUE;
+	static final long START = Long.MIN_VALUE;
+	
+	/*Called from a Migration to queue a step; it starts from START on the next open.*/
+	static void register(SupportSQLiteDatabase db, String name) {
+		db.execSQL("INSERT OR IGNORE INTO `background_migration` (`name`, `position`) VALUES (?, ?)",
+				new Object[]{name, START});
+	}
+	
+	private final WordRoomDatabase mDatabase;
+	private final Executor mWriteExecutor;
+	private final Step[] mSteps;
+	// Steps still registered, as of the last chunk; null until the first chunk has looked.
+	private volatile Set<String> mPending;
+	
+	WordBackgroundMigrator(WordRoomDatabase db, Executor writeExecutor, Step... steps) {
+		mDatabase = db;
+		mWriteExecutor = writeExecutor;
+		mSteps = steps;
+	}
+	
+	/*Runs whatever steps are pending, in the order they were registered. The first task
+	also opens the database, so call this right after building it.*/
+	void start() {
+		mWriteExecutor.execute(this::runNextChunk);
+	}
+	
+	/*Whether the step hasn't cut over yet. True until the first chunk has read the table.*/
+	boolean isPending(String name) {
+		Set<String> pending = mPending;
+		return pending == null || pending.contains(name);
+	}
+	
+	private void runNextChunk() {
+		try {
+			if (!runChunk()) return;
+		} catch (RuntimeException e) {
+			// Retried on the next start; rethrowing would only crash the app at every launch.
+			Log.e(TAG, "Background migration failed, retrying on next start", e);
+			return;
+		}
+		// Behind whatever writes queued up meanwhile.
+		mWriteExecutor.execute(this::runNextChunk);
+	}
+	
+	/*Runs one chunk of the first pending step. Returns false when none is left.*/
+	private boolean runChunk() {
+		SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
+		String name = null;
+		long position = 0;
+		Set<String> pending = new HashSet<>();
+		try (Cursor cursor = db.query("SELECT `name`, `position` FROM `background_migration` ORDER BY rowid")) {
+			while (cursor.moveToNext()) {
+				if (name == null) {
+					name = cursor.getString(0);
+					position = cursor.getLong(1);
+				}
+				pending.add(cursor.getString(0));
+			}
+		}
+		if (name == null) {
+			mPending = Collections.emptySet();
+			return false;
+		}
+		mPending = pending;
+		final Step step = find(name);
+		final String stepName = name;
+		final long stepPosition = position;
+		final boolean[] finished = {false};
+		mDatabase.runInTransaction(() -> {
+			if (step == null) {
+				// Registered by a newer version of the app that was downgraded; nothing to run.
+				Log.w(TAG, "Dropping unknown background migration " + stepName);
+				db.execSQL("DELETE FROM `background_migration` WHERE `name` = ?", new Object[]{stepName});
+				return;
+			}
+			long next = step.runChunk(db, stepPosition);
+			if (next == DONE) {
+				step.cutOver(db);
+				db.execSQL("DELETE FROM `background_migration` WHERE `name` = ?", new Object[]{stepName});
+				finished[0] = true;
+			} else {
+				db.execSQL("UPDATE `background_migration` SET `position` = ? WHERE `name` = ?",
+						new Object[]{next, stepName});
+			}
+		});
+		if (finished[0]) {
+			Set<String> left = new HashSet<>(pending);
+			left.remove(name);
+			mPending = left;
+			Log.i(TAG, "Background migration " + name + " cut over");
+			mDatabase.onLayoutChanged();
+		}
+		return true;
+	}
+	
+	private Step find(String name) {
+		for (Step step : mSteps) if (step.name.equals(name)) return step;
+		return null;
+	}
+}
@@ -0,0 +1,190 @@
+package com.example.roomwordsample;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/* Read-through cache of the alphabetized word list, kept as one array of rows sorted in
+   list order (WordSortKey.ORDER).
+   It always holds a prefix of the sorted table: every word from the first one up to the
+   last cached word. When the whole table fits it is marked complete and answers any page;
+   otherwise it answers pages that fall inside the cached prefix and returns null for the rest.
+
+   Writes made through the repository are merged in place when they commit, so the window
+   shows them right away. Every invalidation from Room still drops the cache: Room coalesces
+   refreshes, so one invalidation can cover our batch together with a purge, an import or
+   another repository's writes, and nothing tells them apart. The pages the pager reads next
+   fill it again. Each drop or merge starts a new generation, and a page read from the
+   database before it is not stored after it.*/
+class WordCache {
+	
+	// Rough heap cost of one cached row: the Word, its two Strings and their arrays.
+	private static final int ENTRY_OVERHEAD_BYTES = 104;
+	static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+	
+	private final long mMaxBytes;
+	private long mBudgetBytes = Long.MAX_VALUE; // lowered under memory pressure
+	
+	private Word[] mRows = new Word[64];
+	private int mSize;
+	private long mBytes;
+	private boolean mComplete;    // the cache holds every row of word_table
+	private boolean mLoaded;      // the cache has seen at least the first page
+	private long mGeneration;     // bumped whenever the rows change other than by a fill
+	
+	WordCache(long maxBytes) {
+		mMaxBytes = maxBytes;
+	}
+	
+	/* ---- reads: return null when the cache can't answer ---- */
+	
+	synchronized List<Word> getFirst(int limit) {
+		if (!mLoaded) return null;
+		return slice(0, limit);
+	}
+	
+	synchronized List<Word> getAfter(Word last, int limit) {
+		if (!mLoaded) return null;
+		return slice(upperBound(last), limit);
+	}
+	
+	synchronized List<Word> getFrom(Word first, int limit) {
+		if (!mLoaded) return null;
+		return slice(lowerBound(first), limit);
+	}
+	
+	/*Nearest first, like WordDao.getWordsBefore.*/
+	synchronized List<Word> getBefore(Word first, int limit) {
+		if (!mLoaded) return null;
+		int end = lowerBound(first);
+		if (end == mSize && !mComplete) return null; // first is past the cached prefix
+		int start = Math.max(0, end - limit);
+		ArrayList<Word> page = new ArrayList<>(end - start);
+		for (int i = end - 1; i >= start; i--) page.add(mRows[i]);
+		return page;
+	}
+	
+	private List<Word> slice(int start, int limit) {
+		if (start + limit > mSize && !mComplete) return null;
+		int end = Math.min(mSize, start + limit);
+		ArrayList<Word> page = new ArrayList<>(Math.max(0, end - start));
+		for (int i = start; i < end; i++) page.add(mRows[i]);
+		return page;
+	}
+	
+	/* ---- read-through fills from pages the pager loaded from the database ---- */
+	
+	/*Read before querying a page; the fill is ignored if the generation moved on meanwhile.*/
+	synchronized long getGeneration() {return mGeneration;}
+	
+	synchronized void putFirst(long generation, List<Word> page, boolean endReached) {
+		if (mLoaded || generation != mGeneration) return;
+		clear();
+		for (Word word : page) append(word);
+		mLoaded = true;
+		mComplete = endReached;
+		trim();
+	}
+	
+	synchronized void putAfter(long generation, Word last, List<Word> page, boolean endReached) {
+		// Only extend the prefix if the page starts right where the cache ends.
+		if (generation != mGeneration || !mLoaded || mComplete || mSize == 0 || !mRows[mSize - 1].getWord().equals(last.getWord())) return;
+		for (Word word : page) append(word);
+		mComplete = endReached;
+		trim();
+	}
+	
+	/* ---- maintenance ---- */
+	
+	/*Caps the cache below maxBytes while memory is short (see WordMemoryGovernor). Lowering
+	it evicts from the end right away; raising it lets the cache grow back as pages are read.*/
+	synchronized void setBudgetBytes(long budgetBytes) {
+		if (budgetBytes == mBudgetBytes) return;
+		mBudgetBytes = budgetBytes;
+		long limit = Math.min(mMaxBytes, mBudgetBytes);
+		int keep = mSize;
+		for (long bytes = mBytes; bytes > limit && keep > 0; ) bytes -= cost(mRows[--keep]);
+		if (keep < mSize) {
+			WordMemoryGovernor.get().onEvicted("cache", mRows[keep], mRows[mSize - 1], mSize - keep);
+			trim();
+		}
+	}
+	
+	/*Called on the writer thread after a batch committed. rowIds are from WordDao.insertAll,
+	-1 where the word was already in the table.*/
+	synchronized void onLocalWriteCommitted(List<Word> batch, long[] rowIds) {
+		mGeneration++; // a page read before the commit may lack these words
+		if (!mLoaded) return;
+		for (int i = 0; i < batch.size(); i++) {
+			if (rowIds[i] == -1) continue;
+			Word word = batch.get(i);
+			int index = lowerBound(word);
+			// Past the cached prefix we can't tell what lies in between; leave it to the database.
+			if (index == mSize && !mComplete) continue;
+			if (index < mSize && mRows[index].getWord().equals(word.getWord())) continue;
+			insertAt(index, word);
+		}
+		trim();
+	}
+	
+	/*Called for every word_table invalidation, whoever wrote: see the class comment.*/
+	synchronized void onTableInvalidated() {
+		clear();
+	}
+	
+	synchronized long getSizeBytes() {return mBytes;}
+	synchronized int size() {return mSize;}
+	
+	private void clear() {
+		mGeneration++;
+		Arrays.fill(mRows, 0, mSize, null);
+		mSize = 0;
+		mBytes = 0;
+		mLoaded = false;
+		mComplete = false;
+	}
+	
+	private void append(Word word) {
+		insertAt(mSize, word);
+	}
+	
+	private void insertAt(int index, Word word) {
+		if (mSize == mRows.length) mRows = Arrays.copyOf(mRows, mSize * 2);
+		System.arraycopy(mRows, index, mRows, index + 1, mSize - index);
+		mRows[index] = word;
+		mSize++;
+		mBytes += cost(word);
+	}
+	
+	/*Evicts from the end so the cache stays a prefix of the table.*/
+	private void trim() {
+		long limit = Math.min(mMaxBytes, mBudgetBytes);
+		while (mBytes > limit && mSize > 0) {
+			mSize--;
+			mBytes -= cost(mRows[mSize]);
+			mRows[mSize] = null;
+			mComplete = false;
+		}
+		// Nothing left to extend: let the next first page fill it again.
+		if (mSize == 0 && !mComplete) mLoaded = false;
+		if (mRows.length > 64 && mSize < mRows.length / 4) {
+			mRows = Arrays.copyOf(mRows, Math.max(64, mSize * 2));
+		}
+	}
+	
+	private static long cost(Word word) {
+		return ENTRY_OVERHEAD_BYTES + 2L * (word.getWord().length() + word.getSortKey().length());
+	}
+	
+	// Index of the first row >= word.
+	private int lowerBound(Word word) {
+		int index = Arrays.binarySearch(mRows, 0, mSize, word, WordSortKey.ORDER);
+		return index >= 0 ? index : -index - 1;
+	}
+	
+	// Index of the first row > word.
+	private int upperBound(Word word) {
+		int index = Arrays.binarySearch(mRows, 0, mSize, word, WordSortKey.ORDER);
+		return index >= 0 ? index + 1 : -index - 1;
+	}
+}
@@ -0,0 +1,37 @@
+package com.example.roomwordsample;
+
+import androidx.annotation.NonNull;
+
+/* A typed delta on the alphabetized word list.
+   position is the index in the sorted list: where the word now is for INSERTED, where it
+   was for DELETED. Applying a batch of changes in order to a copy of the list gives the new
+   list. CLEARED has no word and means the list is now empty. RELOAD means too much changed
+   at once to describe (a large import, say); consumers should re-read the list.*/
+final class WordChange {
+	
+	enum Type {INSERTED, DELETED, CLEARED, RELOAD}
+	
+	final Type type;
+	final String word;
+	final int position;
+	
+	WordChange(Type type, String word, int position) {
+		this.type = type;
+		this.word = word;
+		this.position = position;
+	}
+	
+	static WordChange cleared() {
+		return new WordChange(Type.CLEARED, null, -1);
+	}
+	
+	static WordChange reload() {
+		return new WordChange(Type.RELOAD, null, -1);
+	}
+	
+	@NonNull
+	@Override
+	public String toString() {
+		return word == null ? type.name() : type + " " + word + " @" + position;
+	}
+}
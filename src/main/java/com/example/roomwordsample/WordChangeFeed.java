@@ -0,0 +1,211 @@
+package com.example.roomwordsample;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/* Turns changes to word_table into typed deltas (WordChange) with sort positions, so
+   consumers can apply O(changes) updates instead of reloading the whole list.
+
+   While the feed has listeners, triggers on word_table append every insert and delete to
+   word_change_log, whatever wrote them: the repository's own batches, imports, seeding or
+   a purge. Without listeners the triggers are dropped, so writes pay nothing for the feed.
+   Everything that touches the log (installing the triggers, reading, pruning) runs on the
+   database writer, behind the writes already queued. All writes go through that thread, so
+   the table and the log can't change while a batch of positions is worked out.
+   A position costs O(sections) from the trigger-kept counts (see WordSectionIndex) plus
+   one index seek inside the word's section. The seeks of one drain share MAX_SEEK_ROWS;
+   past that, or past MAX_PENDING_CHANGES, listeners get RELOAD instead.
+   There is one feed per database, so pruning can't skip another reader.*/
+final class WordChangeFeed {
+	
+	interface Listener {
+		/*Called on the database writer thread, in commit order. Writes wait while it runs,
+		so hand anything slow to another thread.*/
+		void onChanges(List<WordChange> changes);
+	}
+	
+	private static final int MAX_PENDING_CHANGES = 200;
+	private static final int MAX_SEEK_ROWS = 10_000;
+	
+	static final String[] TRIGGER_NAMES = {"word_change_log_insert", "word_change_log_delete"};
+	
+	static final String[] TRIGGERS = {
+			"CREATE TRIGGER IF NOT EXISTS word_change_log_insert AFTER INSERT ON word_table "
+					+ "BEGIN INSERT INTO word_change_log(op, word, sort_key) "
+					+ "VALUES (" + WordChangeLog.OP_INSERT + ", NEW.word, NEW.sort_key); END",
+			"CREATE TRIGGER IF NOT EXISTS word_change_log_delete AFTER DELETE ON word_table "
+					+ "BEGIN INSERT INTO word_change_log(op, word, sort_key) "
+					+ "VALUES (" + WordChangeLog.OP_DELETE + ", OLD.word, OLD.sort_key); END",
+	};
+	
+	/*Removes the triggers and whatever was logged on every open: no feed has listeners yet.
+	Covers databases that were created, migrated or copied from an asset, and a process that
+	died with listeners registered.*/
+	static final RoomDatabase.Callback RESET_CALLBACK = new RoomDatabase.Callback() {
+		@Override
+		public void onOpen(@NonNull SupportSQLiteDatabase db) {
+			super.onOpen(db);
+			dropTriggers(db);
+			db.execSQL("DELETE FROM word_change_log");
+		}
+	};
+	
+	private static void dropTriggers(SupportSQLiteDatabase db) {
+		for (String trigger : TRIGGER_NAMES) db.execSQL("DROP TRIGGER IF EXISTS " + trigger);
+	}
+	
+	private final WordRoomDatabase mDatabase;
+	private final WordDao mWordDao;
+	private final WordChangeLogDao mLogDao;
+	private final Executor mExecutor;
+	private final CopyOnWriteArrayList<Listener> mListeners = new CopyOnWriteArrayList<>();
+	
+	// Only touched on the writer thread, except mActive, which poll() reads.
+	private volatile boolean mActive;
+	private long mLastId;
+	private final AtomicBoolean mPollQueued = new AtomicBoolean();
+	
+	private final InvalidationTracker.Observer mObserver =
+			new InvalidationTracker.Observer("word_change_log") {
+				@Override
+				public void onInvalidated(@NonNull Set<String> tables) {
+					poll();
+				}
+			};
+	
+	WordChangeFeed(WordRoomDatabase db) {
+		mDatabase = db;
+		mWordDao = db.instrumentedWordDao();
+		mLogDao = WordDbMetrics.wrap(WordChangeLogDao.class, db.changeLogDao());
+		mExecutor = WordRoomDatabase.databaseWriteExecutor;
+	}
+	
+	void addListener(Listener listener) {
+		mListeners.add(listener);
+		mExecutor.execute(this::updateActive);
+	}
+	
+	void removeListener(Listener listener) {
+		mListeners.remove(listener);
+		mExecutor.execute(this::updateActive);
+	}
+	
+	/*Reads and emits whatever is new in the log. Does nothing while no one listens.*/
+	void poll() {
+		if (mActive && mPollQueued.compareAndSet(false, true)) {
+			mExecutor.execute(() -> {
+				mPollQueued.set(false);
+				drain();
+			});
+		}
+	}
+	
+	/*Tells listeners to re-read the whole list, e.g. after the sort order changed without
+	any row being inserted or deleted.*/
+	void reload() {
+		mExecutor.execute(() -> {
+			if (mActive) emit(Collections.singletonList(WordChange.reload()));
+		});
+	}
+	
+	/*Starts logging for the first listener and stops after the last one left. Runs on the
+	writer, so no write falls between installing the triggers and taking mLastId.*/
+	private void updateActive() {
+		boolean wanted = !mListeners.isEmpty();
+		if (wanted == mActive) return;
+		SupportSQLiteDatabase db = mDatabase.getOpenHelper().getWritableDatabase();
+		if (wanted) {
+			for (String trigger : TRIGGERS) db.execSQL(trigger);
+			mLastId = mLogDao.getLastChangeId();
+			mDatabase.getInvalidationTracker().addObserver(mObserver);
+		} else {
+			mDatabase.getInvalidationTracker().removeObserver(mObserver);
+			dropTriggers(db);
+			mLogDao.pruneChanges(Long.MAX_VALUE);
+		}
+		mActive = wanted;
+	}
+	
+	private void drain() {
+		if (!mActive) return;
+		int pending = mLogDao.countChangesAfter(mLastId);
+		if (pending == 0) return;
+		List<WordChangeLog> log = pending > MAX_PENDING_CHANGES
+				? null : mLogDao.getChangesAfter(mLastId, MAX_PENDING_CHANGES);
+		// Until the sort keys are backfilled the log's keys aren't the ones the rows read as.
+		List<WordChange> changes = log == null || !mDatabase.areSortKeysReady() ? null : toChanges(log);
+		mLastId = log == null ? mLogDao.getLastChangeId() : log.get(log.size() - 1).getId();
+		mLogDao.pruneChanges(mLastId);
+		if (changes == null) {
+			// Too much to describe cheaply: a reload costs less than the positions would.
+			changes = Collections.singletonList(
+					mWordDao.getTotalCount() == 0 ? WordChange.cleared() : WordChange.reload());
+		}
+		emit(changes);
+	}
+	
+	private void emit(List<WordChange> changes) {
+		for (Listener listener : mListeners) listener.onChanges(changes);
+	}
+	
+	/*The log as deltas, or null if working out the positions would cost more than
+	MAX_SEEK_ROWS.*/
+	private List<WordChange> toChanges(List<WordChangeLog> log) {
+		boolean allDeletes = true;
+		for (WordChangeLog entry : log) allDeletes &= entry.getOp() == WordChangeLog.OP_DELETE;
+		if (allDeletes && mWordDao.getTotalCount() == 0) {
+			// A clear (or a purge that emptied the table): one event instead of a delete per row.
+			return Collections.singletonList(WordChange.cleared());
+		}
+		int[] positions = positionsNow(log);
+		if (positions == null) return null;
+		ArrayList<WordChange> changes = new ArrayList<>(log.size());
+		for (int i = 0; i < log.size(); i++) {
+			WordChangeLog entry = log.get(i);
+			// positionsNow() is after the whole batch; undo what the later entries did before it.
+			int position = positions[i];
+			for (int j = i + 1; j < log.size(); j++) {
+				WordChangeLog later = log.get(j);
+				if (WordSortKey.compare(later.getSortKey(), later.getWord(), entry.getSortKey(), entry.getWord()) >= 0) continue;
+				position += later.getOp() == WordChangeLog.OP_INSERT ? -1 : 1;
+			}
+			WordChange.Type type = entry.getOp() == WordChangeLog.OP_INSERT
+					? WordChange.Type.INSERTED : WordChange.Type.DELETED;
+			changes.add(new WordChange(type, entry.getWord(), position));
+		}
+		return changes;
+	}
+	
+	/*For each entry, how many rows of the table as it is now sort before its word: the
+	sections before the word's one, from the counts, plus a seek inside its section.*/
+	private int[] positionsNow(List<WordChangeLog> log) {
+		List<WordSectionCount> sections = mWordDao.loadSectionCounts();
+		int budget = MAX_SEEK_ROWS;
+		int[] positions = new int[log.size()];
+		for (int i = 0; i < log.size(); i++) {
+			WordChangeLog entry = log.get(i);
+			String sortKey = entry.getSortKey();
+			String section = sortKey.isEmpty() ? "" : sortKey.substring(0, sortKey.offsetByCodePoints(0, 1));
+			int before = 0;
+			for (WordSectionCount count : sections) {
+				if (WordSortKey.compareBinary(count.getSection(), section) >= 0) break;
+				before += count.getCount();
+			}
+			int inSection = mLogDao.countWordsInSectionBefore(section, sortKey, entry.getWord(), budget + 1);
+			if (inSection > budget) return null;
+			budget -= inSection;
+			positions[i] = before + inSection;
+		}
+		return positions;
+	}
+}
@@ -0,0 +1,36 @@
+package com.example.roomwordsample;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/* One row per insert or delete on word_table, written by triggers (see WordChangeFeed).
+The AUTOINCREMENT id gives the order changes were committed in.*/
+@Entity(tableName = "word_change_log")
+public class WordChangeLog {
+	static final int OP_INSERT = 1;
+	static final int OP_DELETE = 2;
+	
+	@PrimaryKey(autoGenerate = true)
+	@ColumnInfo(name = "id")
+	private long mId;
+	@ColumnInfo(name = "op")
+	private int mOp;
+	@NonNull
+	@ColumnInfo(name = "word")
+	private String mWord;
+	@NonNull
+	@ColumnInfo(name = "sort_key")
+	private String mSortKey;
+	public WordChangeLog(long id, int op, @NonNull String word, @NonNull String sortKey) {
+		this.mId = id;
+		this.mOp = op;
+		this.mWord = word;
+		this.mSortKey = sortKey;
+	}
+	public long getId() {return this.mId;}
+	public int getOp() {return this.mOp;}
+	public String getWord() {return this.mWord;}
+	public String getSortKey() {return this.mSortKey;}
+}
@@ -0,0 +1,32 @@
+package com.example.roomwordsample;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import java.util.List;
+
+/* Queries for WordChangeFeed: the change log the word_table triggers write while the feed
+has listeners, and the bounded seek it works out positions with. Kept apart from WordDao
+because only a single database file has a feed; the shards don't implement it.*/
+@Dao
+public interface WordChangeLogDao {
+	
+	@Query("SELECT * FROM word_change_log WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+	List<WordChangeLog> getChangesAfter(long afterId, int limit);
+	
+	@Query("SELECT COUNT(*) FROM word_change_log WHERE id > :afterId")
+	int countChangesAfter(long afterId);
+	
+	@Query("SELECT COALESCE(MAX(id), 0) FROM word_change_log")
+	long getLastChangeId();
+	
+	@Query("DELETE FROM word_change_log WHERE id <= :upToId")
+	int pruneChanges(long upToId);
+	
+	/* Rows of the word's section (see WordSectionCount) that sort before it, counting at most
+	:limit: one seek on the (sort_key, word) index from the section's start, so the cost is
+	bounded by the limit, not by the table.*/
+	@Query("SELECT COUNT(*) FROM (SELECT 1 FROM word_table WHERE sort_key >= :section AND sort_key <= :sortKey "
+			+ "AND (sort_key < :sortKey OR word < :word) LIMIT :limit)")
+	int countWordsInSectionBefore(String section, String sortKey, String word, int limit);
+}
@@ -0,0 +1,285 @@
+package com.example.roomwordsample;
+
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.room.InvalidationTracker;
+
+import java.io.Closeable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/* A read-only word list backed by cursors over windows of rows. Nothing is read for a row
+   until something asks for it: WordListAdapter copies the row it binds out of the cursor
+   window into the view holder's buffer, so the time to the first frame is one window fill,
+   not a Word per row of the table.
+
+   The size comes from the trigger-kept section counts (see WordSectionIndex), so the table
+   is never stepped through to count it. The first window is read by the constructor, on a
+   reader thread. After that the list belongs to the main thread, which never queries: a row
+   whose window isn't loaded reads as blank, its window is read on the reader pool and the
+   Listener is told when it arrives. The windows on either side of the one being read are
+   prefetched the same way, so scrolling rarely meets a blank row.
+   A window next to a loaded one is a keyset seek from that window's edge, O(window rows).
+   Only a window with no loaded neighbour, after a jump or a fling, seeks to its section's
+   start key in the index and skips rows within the section.
+
+   Lists come from observe(), which closes each list once a newer one has been handed to
+   its observers. A closed list reads as blank rows until the newer list is shown.*/
+final class WordCursorList extends AbstractList<Word> implements Closeable {
+	
+	/*Told on the main thread when rows that read as blank until now have been loaded.*/
+	interface Listener {
+		void onRowsLoaded(int start, int count);
+	}
+	
+	// Rows per window: window n holds rows n * WINDOW_ROWS onwards.
+	static final int WINDOW_ROWS = 300;
+	// The window being read and one prefetched on either side.
+	private static final int MAX_WINDOWS = 3;
+	
+	private static final String TAG = "WordCursorList";
+	
+	private static final String COLUMNS = "SELECT word, sort_key FROM word_table ";
+	private static final String AFTER_QUERY = COLUMNS
+			+ "WHERE sort_key >= ? AND (sort_key > ? OR word > ?) ORDER BY sort_key ASC, word ASC LIMIT ?";
+	private static final String BEFORE_QUERY = COLUMNS
+			+ "WHERE sort_key <= ? AND (sort_key < ? OR word < ?) ORDER BY sort_key DESC, word DESC LIMIT ?";
+	private static final String SECTION_QUERY = COLUMNS
+			+ "WHERE sort_key >= ? ORDER BY sort_key ASC, word ASC LIMIT ? OFFSET ?";
+	
+	/*One window's rows, read in full on a reader thread and only moved over afterwards, on
+	the main thread. A window read backwards from its successor holds its rows nearest first.*/
+	private static final class Window {
+		final int number;
+		final Cursor cursor;
+		final boolean reversed;
+		// The first and last rows in list order, to seek the neighbouring windows from.
+		final String firstKey, firstWord, lastKey, lastWord;
+		
+		Window(int number, Cursor cursor, boolean reversed) {
+			this.number = number;
+			this.cursor = cursor;
+			this.reversed = reversed;
+			int count = cursor.getCount(); // runs the query now, counting only this window
+			if (count == 0) {
+				firstKey = firstWord = lastKey = lastWord = null;
+				return;
+			}
+			cursor.moveToPosition(reversed ? count - 1 : 0);
+			firstWord = cursor.getString(0);
+			firstKey = cursor.getString(1);
+			cursor.moveToPosition(reversed ? 0 : count - 1);
+			lastWord = cursor.getString(0);
+			lastKey = cursor.getString(1);
+		}
+		
+		/*A short window (rows deleted since the counts were read) still covers its range.*/
+		boolean moveTo(int row) {
+			return cursor.moveToPosition(reversed ? WINDOW_ROWS - 1 - row : row);
+		}
+	}
+	
+	private final WordRoomDatabase mDatabase;
+	private final WordSectionIndex mSections;
+	private final Executor mExecutor;
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	private final int mSize;
+	
+	// Main thread only, after the constructor.
+	private final ArrayList<Window> mWindows = new ArrayList<>(MAX_WINDOWS + 1);
+	private final HashSet<Integer> mLoading = new HashSet<>();
+	private Listener mListener;
+	private boolean mClosed;
+	// The window last read; loads queued for windows that scrolled away since are skipped.
+	private volatile int mFocus;
+	
+	/*Call on a background thread; this reads the first window. Later windows are read
+	on executor.*/
+	WordCursorList(WordRoomDatabase db, WordSectionIndex sections, Executor executor) {
+		mDatabase = db;
+		mSections = sections;
+		mExecutor = executor;
+		mSize = sections.getTotal();
+		if (mSize > 0) mWindows.add(load(0, null, null));
+	}
+	
+	@Override
+	public int size() {return mSize;}
+	
+	@Override
+	public Word get(int index) {
+		return new Word(getString(index));
+	}
+	
+	/*The word, or "" while its window is being read.*/
+	String getString(int index) {
+		Window window = windowFor(index);
+		if (window == null || !window.moveTo(index % WINDOW_ROWS)) return "";
+		return window.cursor.getString(0);
+	}
+	
+	/*Copies the word into buffer without creating a String; empty while its window is being read.*/
+	void copyTo(int index, CharArrayBuffer buffer) {
+		Window window = windowFor(index);
+		if (window != null && window.moveTo(index % WINDOW_ROWS)) {
+			window.cursor.copyStringToBuffer(0, buffer);
+		} else {
+			buffer.sizeCopied = 0;
+		}
+	}
+	
+	void setListener(Listener listener) {mListener = listener;}
+	
+	boolean isClosed() {return mClosed;}
+	
+	@Override
+	public void close() {
+		if (mClosed) return;
+		mClosed = true;
+		for (Window window : mWindows) window.cursor.close();
+		mWindows.clear();
+	}
+	
+	private Window windowFor(int index) {
+		if (index < 0 || index >= mSize) throw new IndexOutOfBoundsException("Index " + index + ", size " + mSize);
+		if (mClosed) return null;
+		int number = index / WINDOW_ROWS;
+		mFocus = number;
+		Window window = find(number);
+		if (window == null) request(number);
+		if (number > 0) request(number - 1);
+		if ((number + 1) * WINDOW_ROWS < mSize) request(number + 1);
+		return window;
+	}
+	
+	private Window find(int number) {
+		for (Window window : mWindows) if (window.number == number) return window;
+		return null;
+	}
+	
+	/*Queues a read of window number unless it is loaded or already queued.*/
+	private void request(final int number) {
+		if (find(number) != null || !mLoading.add(number)) return;
+		final Window before = find(number - 1);
+		final Window after = find(number + 1);
+		mExecutor.execute(() -> {
+			Window window = null;
+			try {
+				if (Math.abs(number - mFocus) <= 1) window = load(number, before, after);
+			} catch (RuntimeException e) {
+				Log.w(TAG, "Reading rows from " + number * WINDOW_ROWS + " failed", e);
+			}
+			final Window loaded = window;
+			mMainHandler.post(() -> install(number, loaded));
+		});
+	}
+	
+	private void install(int number, Window window) {
+		mLoading.remove(number);
+		if (window == null) return;
+		if (mClosed) {
+			window.cursor.close();
+			return;
+		}
+		mWindows.add(window);
+		if (mWindows.size() > MAX_WINDOWS) {
+			// Drop the window farthest from the one being read.
+			Window farthest = window;
+			for (Window candidate : mWindows) {
+				if (Math.abs(candidate.number - mFocus) > Math.abs(farthest.number - mFocus)) farthest = candidate;
+			}
+			mWindows.remove(farthest);
+			farthest.cursor.close();
+			if (farthest == window) return;
+		}
+		if (mListener != null) {
+			int start = number * WINDOW_ROWS;
+			mListener.onRowsLoaded(start, Math.min(WINDOW_ROWS, mSize - start));
+		}
+	}
+	
+	/*Reads window number on a background thread, seeking from a loaded neighbour's edge
+	when there is one. Room's query() fails on the main thread.*/
+	private Window load(int number, Window before, Window after) {
+		if (before != null && before.lastKey != null) {
+			return new Window(number, mDatabase.query(AFTER_QUERY,
+					new Object[]{before.lastKey, before.lastKey, before.lastWord, WINDOW_ROWS}), false);
+		}
+		if (after != null && after.firstKey != null) {
+			return new Window(number, mDatabase.query(BEFORE_QUERY,
+					new Object[]{after.firstKey, after.firstKey, after.firstWord, WINDOW_ROWS}), true);
+		}
+		int start = number * WINDOW_ROWS;
+		int section = mSections.getSectionForPosition(start);
+		return new Window(number, mDatabase.query(SECTION_QUERY, new Object[]{mSections.getStartKey(section),
+				WINDOW_ROWS, start - mSections.getPositionForSection(section)}), false);
+	}
+	
+	/*The alphabetized list as cursor lists, a new one whenever word_table changes while the
+	LiveData is active. Each replaced list is closed right after its successor was set, by
+	which time active observers have already switched to it.*/
+	static LiveData<WordCursorList> observe(WordRoomDatabase db) {
+		return new CursorListLiveData(db);
+	}
+	
+	private static final class CursorListLiveData extends LiveData<WordCursorList> {
+		private final WordRoomDatabase mDatabase;
+		private final TrackerRegistration mRegistration;
+		private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+		private final AtomicBoolean mLoadQueued = new AtomicBoolean();
+		
+		private final InvalidationTracker.Observer mObserver =
+				new InvalidationTracker.Observer("word_table") {
+					@Override
+					public void onInvalidated(@NonNull Set<String> tables) {
+						load();
+					}
+				};
+		
+		CursorListLiveData(WordRoomDatabase db) {
+			mDatabase = db;
+			mRegistration = new TrackerRegistration(new InvalidationTracker[]{db.getInvalidationTracker()}, mObserver);
+		}
+		
+		// Called on the main thread; the observer is added on a reader thread, before the load.
+		@Override
+		protected void onActive() {
+			mRegistration.set(true);
+			mDatabase.getQueryExecutor().execute(() -> {
+				mRegistration.sync();
+				load();
+			});
+		}
+		
+		@Override
+		protected void onInactive() {
+			mRegistration.setInBackground(false, mDatabase.getQueryExecutor());
+		}
+		
+		private void load() {
+			if (mLoadQueued.compareAndSet(false, true)) {
+				mDatabase.getQueryExecutor().execute(() -> {
+					mLoadQueued.set(false);
+					final WordCursorList list = new WordCursorList(mDatabase,
+							WordSectionIndex.of(mDatabase.instrumentedWordDao().loadSectionCounts()),
+							mDatabase.getQueryExecutor());
+					mMainHandler.post(() -> {
+						WordCursorList old = getValue();
+						setValue(list);
+						if (old != null) old.close();
+					});
+				});
+			}
+		}
+	}
+}
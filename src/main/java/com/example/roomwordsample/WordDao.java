@@ -1,5 +1,7 @@
 package com.example.roomwordsample;
 
+import android.database.Cursor;
+
 import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Insert;
@@ -22,11 +24,95 @@ public interface WordDao { //declared as interface (must be interface or abstrac
 	@Insert(onConflict = OnConflictStrategy.IGNORE) // ignores a new word if already in the list
 	void insert(Word word);     //Declares method to insert one word
 	
+	@Insert(onConflict = OnConflictStrategy.IGNORE) // Room runs the whole list in one transaction
+	long[] insertAll(List<Word> words); //returns the new rowIds, -1 for each word already in the list
+	
 	@Query("DELETE FROM word_table") // @Query requires a SQL query as a string parameter.
-	void deleteAll();   //declares a method to delete all the words
+	int deleteAll();   //declares a method to delete all the words, returns how many were deleted
+	
+	/* Bounded deletes for WordDeleter: each call removes at most :limit rows in its own
+	statement, so no single transaction holds the write lock for long.*/
+	@Query("DELETE FROM word_table WHERE rowid IN (SELECT rowid FROM word_table LIMIT :limit)")
+	int deleteSome(int limit);
+	
+	/* From (fromSortKey, fromWord) inclusive to (toSortKey, toWord) exclusive in list order,
+	the same (sort_key, word) comparison as the keyset queries below.*/
+	@Query("DELETE FROM word_table WHERE rowid IN (SELECT rowid FROM word_table "
+			+ "WHERE sort_key >= :fromSortKey AND (sort_key > :fromSortKey OR word >= :fromWord) "
+			+ "AND (:toSortKey IS NULL OR sort_key <= :toSortKey AND (sort_key < :toSortKey OR word < :toWord)) "
+			+ "LIMIT :limit)")
+	int deleteRange(String fromSortKey, String fromWord, String toSortKey, String toWord, int limit);   //null toSortKey: to the end
+	
+	@Query("DELETE FROM word_table WHERE word IN (:words)")
+	int deleteWords(List<String> words);
 	
-	@Query("SELECT * FROM word_table ORDER BY word ASC") //Returns a list of words sorted in ascending order.
+	@Query("SELECT * FROM word_table ORDER BY sort_key ASC, word ASC") //Returns a list of words sorted in ascending order.
 	LiveData<List<Word>> getAlphabetizedWords(); //returned List<Word> is wrapped with LiveData
 	
+	@Query("SELECT * FROM word_table ORDER BY sort_key ASC, word ASC") //Same query, for callers already off the main thread.
+	List<Word> loadAlphabetizedWords();
+	
+	@Query("SELECT word FROM word_table ORDER BY sort_key ASC, word ASC") //Just the words, for CompactWordList; the caller closes it.
+	Cursor loadAlphabetizedWordCursor();
+	
+	/* Primary-key reads for WordDuplicateFilter: which of these words exist, and the words
+	themselves in key order for building the filter. Neither touches the sort_key index.*/
+	@Query("SELECT word FROM word_table WHERE word IN (:words)")
+	List<String> findExistingWords(List<String> words);
+	
+	@Query("SELECT word FROM word_table WHERE word > :after ORDER BY word ASC LIMIT :limit")
+	List<String> getWordKeysAfter(String after, int limit);
+	
+	@Query("SELECT word, sort_key FROM word_table WHERE sort_key >= :lastSortKey AND (sort_key > :lastSortKey OR word > :lastWord) "
+			+ "ORDER BY sort_key ASC, word ASC LIMIT :limit")
+	Cursor getWordCursorAfter(String lastSortKey, String lastWord, int limit);  //export pages in list order; the caller closes it
+	
+	/* Keyset paging: each page seeks on the (sort_key, word) index from the edge of the
+	window instead of using OFFSET, so the cost of a page doesn't grow with its position.
+	The range is on sort_key alone so SQLite can seek on it; the second term only drops the
+	few rows that share the edge's sort_key.*/
+	@Query("SELECT * FROM word_table ORDER BY sort_key ASC, word ASC LIMIT :limit")
+	List<Word> getFirstWords(int limit);    //first page
+	
+	@Query("SELECT * FROM word_table WHERE sort_key >= :lastSortKey AND (sort_key > :lastSortKey OR word > :lastWord) "
+			+ "ORDER BY sort_key ASC, word ASC LIMIT :limit")
+	List<Word> getWordsAfter(String lastSortKey, String lastWord, int limit);   //next page after the last row
+	
+	@Query("SELECT * FROM word_table WHERE sort_key <= :firstSortKey AND (sort_key < :firstSortKey OR word < :firstWord) "
+			+ "ORDER BY sort_key DESC, word DESC LIMIT :limit")
+	List<Word> getWordsBefore(String firstSortKey, String firstWord, int limit);    //previous page, nearest first
+	
+	@Query("SELECT * FROM word_table WHERE sort_key >= :firstSortKey AND (sort_key > :firstSortKey OR word >= :firstWord) "
+			+ "ORDER BY sort_key ASC, word ASC LIMIT :limit")
+	List<Word> getWordsFrom(String firstSortKey, String firstWord, int limit);  //reloads a window in place
+	
+	/* Words whose sort key starts with prefixSortKey (WordSortKey.of the typed prefix), as one
+	range seek on the sort_key index: rows come out in list order and the scan stops at
+	:limit, however many words match. char(1114111) is U+10FFFF, above every other character.*/
+	@Query("SELECT * FROM word_table WHERE sort_key >= :prefixSortKey AND sort_key < :prefixSortKey || char(1114111) "
+			+ "ORDER BY sort_key ASC, word ASC LIMIT :limit")
+	LiveData<List<Word>> searchByPrefix(String prefixSortKey, int limit);  //words starting with prefix
+	
+	/* Full-text search through word_fts, for phrases of several words. The argument is quoted
+	as a phrase here, so callers must strip double quotes from user input (see
+	WordRepository.searchWords). Every match is joined and sorted before the LIMIT, so keep
+	single-word prefixes on searchByPrefix().*/
+	@Query("SELECT word_table.* FROM word_table JOIN word_fts ON word_table.rowid = word_fts.docid "
+			+ "WHERE word_fts MATCH '\"' || :phrase || '*\"' ORDER BY word_table.sort_key ASC, word_table.word ASC LIMIT :limit")
+	LiveData<List<Word>> searchByPhrasePrefix(String phrase, int limit);  //words containing the phrase, last word as a prefix
+	
+	@Query("SELECT COUNT(*) FROM word_table")
+	int countWords();
+	
+	/* Per-section counts kept by triggers (see WordSectionIndex), in list order. Reading them
+	costs O(sections), not O(rows).*/
+	@Query("SELECT * FROM word_section_count WHERE count > 0 ORDER BY section ASC")
+	LiveData<List<WordSectionCount>> getSectionCounts();
+	
+	@Query("SELECT * FROM word_section_count WHERE count > 0 ORDER BY section ASC")
+	List<WordSectionCount> loadSectionCounts();
+	
+	@Query("SELECT COALESCE(SUM(count), 0) FROM word_section_count")
+	int getTotalCount();    //the same as countWords() without the table scan
 	
 }
@@ -0,0 +1,92 @@
+package com.example.roomwordsample;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.List;
+import java.util.Locale;
+
+/* Opens the database on a background thread as soon as the process starts, so the
+   ViewModel attaches to a handle that is already open instead of opening it on the main
+   thread in MainActivity.onCreate.
+   Warm-up builds the Room instance, opens the file (running create/migrations and Room's
+   schema validation), then reads the first page of words. That query pulls the index pages
+   into SQLite's page cache, and the rows are handed to the first WordPager that asks.
+   With sharding on it does the same for every shard instead, and the first page is the
+   merged one from ShardedWordDao, the same the pager would read.*/
+final class WordDatabaseWarmUp {
+	
+	private static final String TAG = "WordDatabaseWarmUp";
+	
+	private static final Object sLock = new Object();
+	private static List<Word> sFirstPage;       // guarded by sLock, taken once
+	private static long sAppStart;              // elapsedRealtime at Application.onCreate
+	private static long sBuildDone;
+	private static long sOpenDone;
+	private static long sFirstPageDone;
+	private static boolean sFirstRowsShown;
+	
+	private WordDatabaseWarmUp() {}
+	
+	/*Called from Application.onCreate. Returns immediately.*/
+	static void start(final Context context) {
+		sAppStart = SystemClock.elapsedRealtime();
+		final Context appContext = context.getApplicationContext();
+		WordRoomDatabase.databaseReadExecutor.execute(() -> {
+			WordShards shards = WordRoomDatabase.getShards(appContext);
+			WordDao dao;
+			if (shards == null) {
+				WordRoomDatabase db = WordRoomDatabase.getDatabase(appContext);
+				sBuildDone = SystemClock.elapsedRealtime();
+				db.getOpenHelper().getWritableDatabase();
+				dao = db.instrumentedWordDao();
+			} else {
+				sBuildDone = SystemClock.elapsedRealtime();
+				for (int i = 0; i < shards.count(); i++) shards.database(i).getOpenHelper().getWritableDatabase();
+				dao = shards.wordDao();
+			}
+			sOpenDone = SystemClock.elapsedRealtime();
+			List<Word> firstPage = dao.getFirstWords(WordPager.DEFAULT_PAGE_SIZE);
+			synchronized (sLock) {
+				sFirstPage = firstPage;
+				sFirstPageDone = SystemClock.elapsedRealtime();
+			}
+		});
+	}
+	
+	/*Hands out the warmed first page once, if it is ready and covers limit rows.
+	The caller should re-read the page afterwards, since writes may have landed since.*/
+	static List<Word> takeFirstPage(int limit) {
+		synchronized (sLock) {
+			List<Word> page = sFirstPage;
+			sFirstPage = null;
+			if (page == null || (page.size() < limit && page.size() == WordPager.DEFAULT_PAGE_SIZE)) {
+				return null;
+			}
+			return page.size() > limit ? page.subList(0, limit) : page;
+		}
+	}
+	
+	/*Called by the UI when the first rows are on screen; logs the startup breakdown once.*/
+	static void onFirstRowsShown() {
+		synchronized (sLock) {
+			if (sFirstRowsShown || sAppStart == 0) return;
+			sFirstRowsShown = true;
+		}
+		Log.i(TAG, getStartupTimings(SystemClock.elapsedRealtime()));
+	}
+	
+	static String getStartupTimings(long firstRowsAt) {
+		synchronized (sLock) {
+			return String.format(Locale.US,
+					"startup: build=%dms open+validate=%dms first page=%dms time-to-first-row=%dms",
+					since(sAppStart, sBuildDone), since(sBuildDone, sOpenDone),
+					since(sOpenDone, sFirstPageDone), since(sAppStart, firstRowsAt));
+		}
+	}
+	
+	private static long since(long from, long to) {
+		return from == 0 || to == 0 ? -1 : to - from;
+	}
+}
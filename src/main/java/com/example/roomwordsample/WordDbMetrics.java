@@ -0,0 +1,269 @@
+package com.example.roomwordsample;
+
+import android.util.Log;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/* Per-method timing and row counts for WordDao, plus the database executor counters.
+   wrap() puts a proxy in front of the generated DAO, so every DAO method, including ones
+   added later, is timed without touching its callers. Each DAO method runs one SQL
+   statement (insertAll one transaction), so the method name identifies the statement.
+   Methods returning LiveData can't be timed from here (Room runs them later, on its own
+   executor); for those only emissions and their rows are counted, outside the latency
+   histogram. Lists that need timing are read with the synchronous query on the reader pool
+   instead, as WordRepository does for the alphabetized list.
+   Other components can add a line of their own to the dump through addReporter().*/
+final class WordDbMetrics {
+	
+	/*Contributes a line to every dump.*/
+	interface Reporter {
+		String report();
+	}
+	
+	private static final String TAG = "WordDbMetrics";
+	private static final WordDbMetrics sInstance = new WordDbMetrics();
+	
+	private final Map<String, MethodStats> mStats = new ConcurrentHashMap<>();
+	private final List<Reporter> mReporters = new CopyOnWriteArrayList<>();
+	private final ScheduledExecutorService mDumpExecutor =
+			Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "word-db-metrics");
+				thread.setDaemon(true);
+				return thread;
+			});
+	private ScheduledFuture<?> mDump;
+	
+	private WordDbMetrics() {}
+	
+	static WordDbMetrics get() {return sInstance;}
+	
+	static WordDao wrap(final WordDao dao) {
+		return wrap(WordDao.class, dao);
+	}
+	
+	/*The same for any other DAO interface. Method names share one table, so keep them unique.*/
+	static <T> T wrap(Class<T> type, final T dao) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+				new Class<?>[]{type}, new TimingHandler(dao, sInstance)));
+	}
+	
+	/*Logs a snapshot every intervalMillis until stopPeriodicDump().*/
+	synchronized void startPeriodicDump(long intervalMillis) {
+		stopPeriodicDump();
+		mDump = mDumpExecutor.scheduleAtFixedRate(() -> Log.i(TAG, dump()),
+				intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	synchronized void stopPeriodicDump() {
+		if (mDump != null) {
+			mDump.cancel(false);
+			mDump = null;
+		}
+	}
+	
+	void addReporter(Reporter reporter) {
+		mReporters.add(reporter);
+	}
+	
+	/*Current stats per DAO method, sorted by name.*/
+	List<MethodStats.Snapshot> snapshot() {
+		TreeMap<String, MethodStats> sorted = new TreeMap<>(mStats);
+		ArrayList<MethodStats.Snapshot> result = new ArrayList<>(sorted.size());
+		for (MethodStats stats : sorted.values()) result.add(stats.snapshot());
+		return result;
+	}
+	
+	String dump() {
+		StringBuilder out = new StringBuilder("WordDao metrics\n");
+		for (MethodStats.Snapshot snapshot : snapshot()) out.append(snapshot).append('\n');
+		out.append(WordRoomDatabase.getExecutorStats());
+		for (Reporter reporter : mReporters) out.append('\n').append(reporter.report());
+		return out.toString();
+	}
+	
+	void reset() {
+		mStats.clear();
+	}
+	
+	MethodStats stats(String name) {
+		MethodStats stats = mStats.get(name);
+		if (stats == null) {
+			MethodStats created = new MethodStats(name);
+			stats = mStats.putIfAbsent(name, created);
+			if (stats == null) stats = created;
+		}
+		return stats;
+	}
+	
+	private static final class TimingHandler implements InvocationHandler {
+		private final Object mDao;
+		private final WordDbMetrics mMetrics;
+		
+		TimingHandler(Object dao, WordDbMetrics metrics) {
+			mDao = dao;
+			mMetrics = metrics;
+		}
+		
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getDeclaringClass() == Object.class) return method.invoke(mDao, args);
+			MethodStats stats = mMetrics.stats(method.getName());
+			long wait = InstrumentedExecutor.takeCurrentTaskWaitNanos();
+			if (wait >= 0) stats.recordWait(wait);
+			long start = System.nanoTime();
+			Object result;
+			try {
+				result = method.invoke(mDao, args);
+			} catch (InvocationTargetException e) {
+				stats.recordError();
+				throw e.getCause();
+			}
+			long elapsed = System.nanoTime() - start;
+			if (result instanceof LiveData) return countEmissions((LiveData<?>) result, stats);
+			stats.record(elapsed, rows(result));
+			return result;
+		}
+		
+		private static <T> LiveData<T> countEmissions(LiveData<T> source, final MethodStats stats) {
+			final MediatorLiveData<T> counted = new MediatorLiveData<>();
+			counted.addSource(source, value -> {
+				stats.recordEmission(rows(value));
+				counted.setValue(value);
+			});
+			return counted;
+		}
+		
+		/*Rows returned or affected, -1 when the result doesn't say.*/
+		private static long rows(Object result) {
+			if (result instanceof List) return ((List<?>) result).size();
+			if (result instanceof long[]) {
+				long inserted = 0;
+				for (long rowId : (long[]) result) if (rowId != -1) inserted++;
+				return inserted;
+			}
+			if (result instanceof Integer) return (Integer) result;
+			if (result instanceof Long) return (Long) result == -1 ? 0 : 1;
+			return -1;
+		}
+	}
+	
+	/*Latency histogram with power-of-two microsecond buckets, and row counters.*/
+	static final class MethodStats {
+		private static final int BUCKETS = 32;
+		
+		private final String mName;
+		private final long[] mBuckets = new long[BUCKETS]; // bucket i: < 2^i microseconds
+		private long mCalls;
+		private long mErrors;
+		private long mTotalNanos;
+		private long mMaxNanos;
+		private long mRows;
+		private long mEmissions;
+		private long mWaits;
+		private long mTotalWaitNanos;
+		
+		MethodStats(String name) {mName = name;}
+		
+		synchronized void record(long nanos, long rows) {
+			long micros = nanos / 1000;
+			int bucket = micros == 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+			mBuckets[bucket]++;
+			mCalls++;
+			mTotalNanos += nanos;
+			mMaxNanos = Math.max(mMaxNanos, nanos);
+			if (rows > 0) mRows += rows;
+		}
+		
+		/*A LiveData result delivered a value. Its query time is unknown, so it stays out of
+		the histogram.*/
+		synchronized void recordEmission(long rows) {
+			mEmissions++;
+			if (rows > 0) mRows += rows;
+		}
+		
+		/*Time the executor task that made this call spent queued before it ran.*/
+		synchronized void recordWait(long nanos) {
+			mWaits++;
+			mTotalWaitNanos += nanos;
+		}
+		
+		synchronized void recordError() {
+			mErrors++;
+		}
+		
+		synchronized Snapshot snapshot() {
+			return new Snapshot(mName, mCalls, mErrors, mTotalNanos, mMaxNanos, mRows, mEmissions,
+					percentileMicros(0.5), percentileMicros(0.95), percentileMicros(0.99),
+					mWaits == 0 ? 0 : mTotalWaitNanos / mWaits);
+		}
+		
+		// Upper bound of the bucket holding the given fraction of calls.
+		private long percentileMicros(double fraction) {
+			long target = (long) Math.ceil(mCalls * fraction);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += mBuckets[i];
+				if (seen >= target && seen > 0) return 1L << i;
+			}
+			return 0;
+		}
+		
+		static final class Snapshot {
+			final String name;
+			final long calls;
+			final long errors;
+			final long totalNanos;
+			final long maxNanos;
+			final long rows;
+			final long emissions;
+			final long p50Micros;
+			final long p95Micros;
+			final long p99Micros;
+			final long averageWaitNanos;
+			
+			Snapshot(String name, long calls, long errors, long totalNanos, long maxNanos, long rows,
+					long emissions, long p50Micros, long p95Micros, long p99Micros, long averageWaitNanos) {
+				this.name = name;
+				this.calls = calls;
+				this.errors = errors;
+				this.totalNanos = totalNanos;
+				this.maxNanos = maxNanos;
+				this.rows = rows;
+				this.emissions = emissions;
+				this.p50Micros = p50Micros;
+				this.p95Micros = p95Micros;
+				this.p99Micros = p99Micros;
+				this.averageWaitNanos = averageWaitNanos;
+			}
+			
+			@Override
+			public String toString() {
+				if (calls == 0 && emissions > 0) {
+					return String.format(Locale.US, "%s: emissions=%d rows=%d (LiveData, not timed)",
+							name, emissions, rows);
+				}
+				return String.format(Locale.US,
+						"%s: calls=%d errors=%d rows=%d avg=%.2fms p50<%dus p95<%dus p99<%dus max=%.2fms queued avg=%.2fms",
+						name, calls, errors, rows, calls == 0 ? 0 : totalNanos / 1e6 / calls,
+						p50Micros, p95Micros, p99Micros, maxNanos / 1e6, averageWaitNanos / 1e6);
+			}
+		}
+	}
+}
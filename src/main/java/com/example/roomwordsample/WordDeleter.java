@@ -0,0 +1,141 @@
+package com.example.roomwordsample;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/* Deletes words in bounded transactions so a purge never holds the write lock for long.
+   Each chunk of at most CHUNK_SIZE rows is its own transaction on the write executor, so
+   inserts queued meanwhile commit between chunks, and the deleter pauses briefly after each
+   one to let readers and checkpoints through. Rows already deleted stay deleted on cancel.
+   Room invalidates word_table after every chunk, so the pager, cache and change feed follow
+   along as the purge runs.*/
+class WordDeleter {
+	
+	/*Callbacks run on the delete thread.*/
+	interface Listener {
+		void onProgress(long deleted);
+		void onComplete(long deleted);
+		/*Also called with a CancellationException after cancel().*/
+		void onError(Exception e);
+	}
+	
+	/*Selects the words deleteMatching() removes.*/
+	interface Filter {
+		boolean matches(Word word);
+	}
+	
+	/*Handle to a running deletion.*/
+	static final class Task {
+		private final AtomicBoolean mCancelled = new AtomicBoolean();
+		
+		/*Stops after the chunk in progress.*/
+		void cancel() {mCancelled.set(true);}
+		boolean isCancelled() {return mCancelled.get();}
+		
+		private void checkCancelled() {
+			if (mCancelled.get()) throw new CancellationException();
+		}
+	}
+	
+	// Also keeps deleteWords() under SQLite's limit of 999 bound variables.
+	static final int CHUNK_SIZE = 500;
+	private static final long PAUSE_MILLIS = 5;
+	
+	// One deletion at a time; a second one queues behind the first.
+	private static final ExecutorService sDeleteExecutor =
+			Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "word-delete");
+				thread.setDaemon(true);
+				return thread;
+			});
+	
+	private interface Chunk {
+		int delete();
+	}
+	
+	private final WordDao mWordDao;
+	private final ExecutorService mWriteExecutor;
+	
+	WordDeleter(WordDao dao, ExecutorService writeExecutor) {
+		mWordDao = dao;
+		mWriteExecutor = writeExecutor;
+	}
+	
+	Task deleteAll(Listener listener) {
+		return run(listener, task -> deleteInChunks(() -> mWordDao.deleteSome(CHUNK_SIZE), listener, task));
+	}
+	
+	/*Deletes the words from fromWord (inclusive) to toWord (exclusive) in list order, that is
+	by (sort key, word), so "Apple" and "apple" fall on either side of a bound as they are
+	shown. A null fromWord starts at the beginning of the list, a null toWord runs to its end.*/
+	Task deleteRange(String from, final String toWord, Listener listener) {
+		// ("", "") is the lowest (sort key, word) there is.
+		final String fromWord = from == null ? "" : from;
+		final String fromSortKey = WordSortKey.of(fromWord);
+		final String toSortKey = toWord == null ? null : WordSortKey.of(toWord);
+		return run(listener, task -> deleteInChunks(
+				() -> mWordDao.deleteRange(fromSortKey, fromWord, toSortKey, toWord, CHUNK_SIZE), listener, task));
+	}
+	
+	/*Scans the list in keyset order and deletes the words the filter matches. The filter
+	runs on the delete thread.*/
+	Task deleteMatching(Filter filter, Listener listener) {
+		return run(listener, task -> {
+			long deleted = 0;
+			List<Word> page = mWordDao.getFirstWords(CHUNK_SIZE);
+			while (!page.isEmpty()) {
+				task.checkCancelled();
+				final ArrayList<String> matches = new ArrayList<>();
+				for (Word word : page) if (filter.matches(word)) matches.add(word.getWord());
+				if (!matches.isEmpty()) {
+					deleted += commit(() -> mWordDao.deleteWords(matches));
+					listener.onProgress(deleted);
+				}
+				if (page.size() < CHUNK_SIZE) break;
+				Word last = page.get(page.size() - 1);
+				page = mWordDao.getWordsAfter(last.getSortKey(), last.getWord(), CHUNK_SIZE);
+			}
+			return deleted;
+		});
+	}
+	
+	private interface Job {
+		long run(Task task) throws Exception;
+	}
+	
+	private Task run(final Listener listener, final Job job) {
+		final Task task = new Task();
+		sDeleteExecutor.execute(() -> {
+			try {
+				listener.onComplete(job.run(task));
+			} catch (Exception e) {
+				listener.onError(e);
+			}
+		});
+		return task;
+	}
+	
+	private long deleteInChunks(Chunk chunk, Listener listener, Task task)
+			throws InterruptedException, ExecutionException {
+		long deleted = 0;
+		while (true) {
+			task.checkCancelled();
+			int rows = commit(chunk);
+			deleted += rows;
+			listener.onProgress(deleted);
+			if (rows < CHUNK_SIZE) return deleted;
+		}
+	}
+	
+	/*Runs one chunk as its own transaction on the write executor, then pauses.*/
+	private int commit(final Chunk chunk) throws InterruptedException, ExecutionException {
+		int rows = mWriteExecutor.submit(chunk::delete).get();
+		Thread.sleep(PAUSE_MILLIS);
+		return rows;
+	}
+}
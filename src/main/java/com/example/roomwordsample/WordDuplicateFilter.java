@@ -0,0 +1,263 @@
+package com.example.roomwordsample;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* Drops words that are already in word_table before they reach the write executor.
+   A Bloom filter over every word in the table answers "definitely new" or "maybe present".
+   Definitely new words go straight on; maybe-present ones are checked against the primary
+   key in one batched read, and only the words really missing go on. So a false positive
+   costs a cheap read instead of a lost word, and a duplicate costs a read instead of a write
+   transaction. The check runs on the write executor, behind the writes already queued: on
+   the reader pool it could run before a queued delete commits and drop a word that was
+   deleted and then added again.
+
+   The filter is built from the table in the background when the database opens and every
+   word passed on is added to it. Bloom filters can't forget, so deletes leave stale bits;
+   they show up as a rising false-positive rate, and the filter is rebuilt once that rate or
+   the number of words passes what it was sized for. Until the first build finishes every
+   word goes on unfiltered. Writes that don't come through here (imports, seeding) are
+   missing from the filter until the next rebuild, which only means they aren't filtered.*/
+class WordDuplicateFilter implements WordDbMetrics.Reporter {
+	
+	/*Receives the words that passed. Called on the caller's thread or on the writer thread.*/
+	interface Sink {
+		void accept(Word word);
+		/*The word was found in the table and dropped. Called on the writer thread.*/
+		default void reject(Word word) {}
+	}
+	
+	static final double TARGET_FALSE_POSITIVE_RATE = 0.01;
+	private static final int MIN_CAPACITY = 64 * 1024;
+	private static final int BUILD_CHUNK = 5000;
+	private static final int CONFIRM_BATCH = 500; // under SQLite's 999 bound variables
+	// Rebuild once this many absent words were checked and the measured rate is this far off.
+	private static final long REBUILD_MIN_SAMPLES = 10_000;
+	private static final double REBUILD_RATE_FACTOR = 5;
+	
+	private final WordDao mWordDao;
+	private final Executor mReadExecutor;
+	private final Executor mWriteExecutor;
+	
+	private volatile BloomFilter mFilter;   // null until the first build finishes
+	private volatile BloomFilter mBuilding; // also receives new words while a build runs
+	private final AtomicBoolean mBuildRunning = new AtomicBoolean();
+	
+	private final ConcurrentLinkedQueue<Pending> mSuspects = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean mConfirmQueued = new AtomicBoolean();
+	
+	private final AtomicLong mOffered = new AtomicLong();
+	private final AtomicLong mNegatives = new AtomicLong();
+	private final AtomicLong mDuplicatesDropped = new AtomicLong();
+	private final AtomicLong mFalsePositives = new AtomicLong();
+	
+	private static final class Pending {
+		final Word word;
+		final Sink sink;
+		
+		Pending(Word word, Sink sink) {
+			this.word = word;
+			this.sink = sink;
+		}
+	}
+	
+	/*readExecutor builds the filter; writeExecutor must be the one every delete goes through.*/
+	WordDuplicateFilter(WordDao dao, Executor readExecutor, Executor writeExecutor) {
+		mWordDao = dao;
+		mReadExecutor = readExecutor;
+		mWriteExecutor = writeExecutor;
+		WordDbMetrics.get().addReporter(this);
+	}
+	
+	/*Starts the background build. Safe to call more than once.*/
+	void start() {
+		rebuild();
+	}
+	
+	void offer(Word word, Sink sink) {
+		mOffered.incrementAndGet();
+		BloomFilter filter = mFilter;
+		if (filter == null) {
+			pass(word, sink);
+		} else if (!filter.mightContain(word.getWord())) {
+			mNegatives.incrementAndGet();
+			pass(word, sink);
+		} else {
+			mSuspects.add(new Pending(word, sink));
+			scheduleConfirm();
+		}
+	}
+	
+	void offerAll(List<Word> words, Sink sink) {
+		for (Word word : words) offer(word, sink);
+	}
+	
+	private void pass(Word word, Sink sink) {
+		BloomFilter filter = mFilter;
+		if (filter != null) filter.put(word.getWord());
+		BloomFilter building = mBuilding;
+		if (building != null) building.put(word.getWord());
+		sink.accept(word);
+	}
+	
+	private void scheduleConfirm() {
+		if (mConfirmQueued.compareAndSet(false, true)) {
+			mWriteExecutor.execute(() -> {
+				mConfirmQueued.set(false);
+				confirm();
+			});
+		}
+	}
+	
+	/*Checks the maybe-present words against the table, CONFIRM_BATCH at a time.*/
+	private void confirm() {
+		ArrayList<Pending> batch = new ArrayList<>(CONFIRM_BATCH);
+		Pending next;
+		while ((next = mSuspects.poll()) != null) {
+			batch.add(next);
+			if (batch.size() == CONFIRM_BATCH) {
+				confirm(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty()) confirm(batch);
+		maybeRebuild();
+	}
+	
+	private void confirm(List<Pending> batch) {
+		ArrayList<String> words = new ArrayList<>(batch.size());
+		for (Pending pending : batch) words.add(pending.word.getWord());
+		HashSet<String> existing = new HashSet<>(mWordDao.findExistingWords(words));
+		for (Pending pending : batch) {
+			if (existing.contains(pending.word.getWord())) {
+				mDuplicatesDropped.incrementAndGet();
+				pending.sink.reject(pending.word);
+			} else {
+				mFalsePositives.incrementAndGet();
+				pass(pending.word, pending.sink);
+			}
+		}
+	}
+	
+	private void maybeRebuild() {
+		BloomFilter filter = mFilter;
+		if (filter == null) return;
+		long absent = mNegatives.get() + mFalsePositives.get();
+		boolean stale = absent >= REBUILD_MIN_SAMPLES
+				&& mFalsePositives.get() > REBUILD_RATE_FACTOR * TARGET_FALSE_POSITIVE_RATE * absent;
+		if (stale || filter.size() > filter.capacity) rebuild();
+	}
+	
+	/*Sizes a new filter from the row count and fills it with a keyset scan of the primary
+	key, one chunk per reader task so the build never holds a reader thread for long.*/
+	private void rebuild() {
+		if (!mBuildRunning.compareAndSet(false, true)) return;
+		mReadExecutor.execute(() -> {
+			int rows = mWordDao.countWords();
+			mBuilding = new BloomFilter(Math.max(MIN_CAPACITY, 2 * rows), TARGET_FALSE_POSITIVE_RATE);
+			buildFrom("");
+		});
+	}
+	
+	private void buildFrom(String after) {
+		BloomFilter building = mBuilding;
+		List<String> chunk = mWordDao.getWordKeysAfter(after, BUILD_CHUNK);
+		for (String word : chunk) building.put(word);
+		if (chunk.size() == BUILD_CHUNK) {
+			final String last = chunk.get(chunk.size() - 1);
+			mReadExecutor.execute(() -> buildFrom(last));
+			return;
+		}
+		mFilter = building;
+		mBuilding = null;
+		// The measured rate starts over with the new filter.
+		mNegatives.set(0);
+		mFalsePositives.set(0);
+		mBuildRunning.set(false);
+	}
+	
+	@Override
+	public String report() {
+		BloomFilter filter = mFilter;
+		long absent = mNegatives.get() + mFalsePositives.get();
+		return String.format(Locale.US,
+				"duplicate filter: %s offered=%d dropped=%d falsePositives=%d measuredFpr=%.4f "
+						+ "expectedFpr=%.4f words=%d capacity=%d memory=%dKiB",
+				filter == null ? "building" : "ready", mOffered.get(), mDuplicatesDropped.get(),
+				mFalsePositives.get(), absent == 0 ? 0.0 : (double) mFalsePositives.get() / absent,
+				filter == null ? 0.0 : filter.expectedFalsePositiveRate(),
+				filter == null ? 0 : filter.size(), filter == null ? 0 : filter.capacity,
+				filter == null ? 0 : filter.sizeBytes() / 1024);
+	}
+	
+	/*Standard Bloom filter with k probes derived from two halves of one 64-bit FNV-1a hash.*/
+	static final class BloomFilter {
+		final int capacity;
+		private final long mBits;
+		private final int mHashes;
+		private final AtomicLongArray mWords;
+		private final AtomicLong mSize = new AtomicLong();
+		
+		BloomFilter(int capacity, double falsePositiveRate) {
+			this.capacity = capacity;
+			double ln2 = Math.log(2);
+			long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+			mWords = new AtomicLongArray((int) ((bits + 63) / 64));
+			mBits = 64L * mWords.length();
+			mHashes = Math.max(1, (int) Math.round((double) mBits / capacity * ln2));
+		}
+		
+		boolean mightContain(String word) {
+			long hash = hash(word);
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32);
+			for (int i = 0; i < mHashes; i++) {
+				long bit = ((h1 + i * h2) & 0x7fffffffL) % mBits;
+				if ((mWords.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+			}
+			return true;
+		}
+		
+		void put(String word) {
+			long hash = hash(word);
+			int h1 = (int) hash;
+			int h2 = (int) (hash >>> 32);
+			for (int i = 0; i < mHashes; i++) {
+				long bit = ((h1 + i * h2) & 0x7fffffffL) % mBits;
+				int index = (int) (bit >>> 6);
+				long mask = 1L << bit;
+				long current;
+				do {
+					current = mWords.get(index);
+					if ((current & mask) != 0) break;
+				} while (!mWords.compareAndSet(index, current, current | mask));
+			}
+			mSize.incrementAndGet();
+		}
+		
+		/*Counts puts, so a word added twice counts twice; it only drives resizing.*/
+		long size() {return mSize.get();}
+		
+		long sizeBytes() {return 8L * mWords.length();}
+		
+		double expectedFalsePositiveRate() {
+			return Math.pow(1 - Math.exp(-(double) mHashes * mSize.get() / mBits), mHashes);
+		}
+		
+		private static long hash(String word) {
+			long hash = 0xcbf29ce484222325L;
+			for (int i = 0; i < word.length(); i++) {
+				hash ^= word.charAt(i);
+				hash *= 0x100000001b3L;
+			}
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package com.example.roomwordsample;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+
+/* Full-text index over word_table. It is an external content table: the words are
+stored only once, in word_table, and Room installs triggers that keep the index in sync
+on every insert, update and delete. Rows join back to word_table on rowid = docid.*/
+@Fts4(contentEntity = Word.class)
+@Entity(tableName = "word_fts")
+public class WordFts {
+	@NonNull
+	@ColumnInfo(name = "word") // must match the column name in word_table
+	private String mWord;
+	public WordFts(@NonNull String word) {this.mWord = word;}
+	public String getWord() {return this.mWord;}
+}
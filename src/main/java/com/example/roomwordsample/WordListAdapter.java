@@ -1,59 +1,170 @@
 package com.example.roomwordsample;
 
 import android.content.Context;
+import android.database.CharArrayBuffer;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 public class WordListAdapter extends RecyclerView.Adapter<WordListAdapter.WordViewHolder> {
 	
 	class WordViewHolder extends RecyclerView.ViewHolder {
 		private final TextView wordItemView;
+		private final CharArrayBuffer wordBuffer = new CharArrayBuffer(32); // for cursor rows
 		private WordViewHolder(View itemView) {
 			super(itemView);
 			wordItemView = itemView.findViewById(R.id.textView);
 			
 		}
 	}
+	// Diffs run here, one at a time; only the newest submitted list is ever applied.
+	private static final Executor sDiffExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "word-list-diff");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
 	private final LayoutInflater mInflater;
-	private List<Word> mWords; // cached copy of words
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	/* Cached copy of words, kept compact (see CompactWordList) and bound straight from its
+	char array. The diff is computed on a background thread, only the insert/remove/move
+	events are dispatched, and a result is dropped if a newer list was submitted meanwhile.*/
+	private CompactWordList mWords = CompactWordList.EMPTY;
+	private int mGeneration;
+	// When set, rows are read from this cursor as they are bound instead (see WordCursorList).
+	private WordCursorList mCursorWords;
+	private final WordTextPrecomputer mPrecomputer = new WordTextPrecomputer();
 	
 	WordListAdapter(Context context) {mInflater = LayoutInflater.from(context);}
 	
 	@Override
 	public WordViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
 		View itemView = mInflater.inflate(R.layout.recyclerview_item, parent, false);
-		return new WordViewHolder(itemView);
+		WordViewHolder holder = new WordViewHolder(itemView);
+		mPrecomputer.setParams(TextViewCompat.getTextMetricsParams(holder.wordItemView));
+		return holder;
 	}
 	
 	@Override
 	public void onBindViewHolder(WordViewHolder holder, int position) {
-		if (mWords != null) {
-			Word current = mWords.get(position);
-			holder.wordItemView.setText(current.getWord());
-		} else {
-			holder.wordItemView.setText("No word");
+		PrecomputedTextCompat precomputed = mCursorWords == null ? mPrecomputer.take(position) : null;
+		if (precomputed != null) {
+			TextViewCompat.setPrecomputedText(holder.wordItemView, precomputed);
+			return;
+		}
+		if (mCursorWords != null) {
+			// The holder's buffer is only ever shown by its own TextView, so it can be reused.
+			mCursorWords.copyTo(position, holder.wordBuffer);
+			holder.wordItemView.setText(holder.wordBuffer.data, 0, holder.wordBuffer.sizeCopied);
+			return;
 		}
+		// No String is created: the TextView reads the shared array directly.
+		holder.wordItemView.setText(mWords.chars(), mWords.start(position), mWords.length(position));
 	}
 	
+	/*The list must not be mutated after it is submitted; the diff reads it off the main thread.*/
 	void setWords(List<Word> words) {
-		mWords = words;
+		setWords(words == null ? CompactWordList.EMPTY : CompactWordList.copyOf(words));
+	}
+	
+	/*Call on the main thread.*/
+	void setWords(final CompactWordList words) {
+		final int generation = ++mGeneration;
+		final CompactWordList old = mWords;
+		if (mCursorWords != null || old.isEmpty() || words.isEmpty()) {
+			mCursorWords = null;
+			mWords = words;
+			mPrecomputer.setWords(words);
+			notifyDataSetChanged();
+			return;
+		}
+		sDiffExecutor.execute(() -> {
+			// Words are keyed on the primary key and have no other columns, so the same
+			// characters mean the same item with the same contents.
+			final DiffUtil.DiffResult diff = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+				@Override
+				public int getOldListSize() {return old.size();}
+				
+				@Override
+				public int getNewListSize() {return words.size();}
+				
+				@Override
+				public boolean areItemsTheSame(int oldPosition, int newPosition) {
+					return old.equalsAt(oldPosition, words, newPosition);
+				}
+				
+				@Override
+				public boolean areContentsTheSame(int oldPosition, int newPosition) {
+					return true; // only called when areItemsTheSame() is
+				}
+			});
+			mMainHandler.post(() -> {
+				if (generation != mGeneration) return;
+				mWords = words;
+				mPrecomputer.setWords(words);
+				diff.dispatchUpdatesTo(WordListAdapter.this);
+			});
+		});
+	}
+	
+	/*Shows a list that replaces the old one rather than updating it, e.g. after a jump to
+	another section: no diff, every row is rebound. Call on the main thread.*/
+	void replaceWords(List<Word> words) {
+		mGeneration++; // drops any diff still running
+		mCursorWords = null;
+		mWords = words == null ? CompactWordList.EMPTY : CompactWordList.copyOf(words);
+		mPrecomputer.setWords(mWords);
 		notifyDataSetChanged();
 	}
 	
+	/*Shows a cursor-backed list. There is no diff: reading every row to compare would defeat
+	the point, so the whole list is rebound, like CursorAdapter.swapCursor(). The adapter
+	doesn't close lists; their LiveData does (see WordCursorList.observe). Call on the main thread.*/
+	void setWords(final WordCursorList words) {
+		mGeneration++; // drops any diff still running for a compact list
+		mCursorWords = words;
+		// Rows of windows still being read are bound blank; rebind them when they arrive.
+		if (words != null) words.setListener((start, count) -> {
+			if (mCursorWords == words) notifyItemRangeChanged(start, count);
+		});
+		mWords = CompactWordList.EMPTY;
+		mPrecomputer.setWords(CompactWordList.EMPTY);
+		notifyDataSetChanged();
+	}
+	
+	/*Called by the scroll listener with the visible range: measures the text of the rows
+	about to come into view, in the direction of the scroll, off the main thread.*/
+	void onVisibleRangeChanged(int first, int last, int dy) {
+		if (first < 0 || mCursorWords != null) return;
+		if (dy >= 0) {
+			mPrecomputer.prefetch(last + 1, last + WordTextPrecomputer.DEFAULT_AHEAD);
+		} else {
+			mPrecomputer.prefetch(first - WordTextPrecomputer.DEFAULT_AHEAD, first - 1);
+		}
+	}
+	
+	/*Called from the activity's onTrimMemory() with the budget for the trim level.*/
+	void onTrimMemory(WordMemoryGovernor.Budget budget) {
+		mPrecomputer.trim(budget);
+	}
+
 /*	getItemCount() is called many times.
-	When it is first called, mWords has not been updated
-	 **(means initially, it's null, and we can't return null).*/
+	Until the first list is submitted the list is empty.*/
 	
 	@Override
 	public int getItemCount() {
-		if (mWords != null)
-			return mWords.size();
-		else return 0;
+		return mCursorWords != null ? mCursorWords.size() : mWords.size();
 	}
 }
@@ -0,0 +1,220 @@
+package com.example.roomwordsample;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Sizes the in-memory copies of the word list to what the system can spare.
+   Registered with the Application (see WordApplication), it turns onTrimMemory() and
+   onLowMemory() into a Pressure level and hands every Listener the lower Budget right away,
+   so the pager drops the window rows and the cache rows it may no longer keep.
+   The system never says when the pressure is over, so a level counts as over after
+   RELAX_AFTER_MILLIS without a new callback, one level at a time. Nothing is reloaded
+   then: holders read getBudget() on their next load and grow back as the list is scrolled.
+   Rows evicted this way are remembered as ranges, and reading them from the database again
+   counts as a refetch, so the metrics dump shows what trimming cost.*/
+final class WordMemoryGovernor implements ComponentCallbacks2, WordDbMetrics.Reporter {
+	
+	enum Pressure {NORMAL, LOW, CRITICAL}
+	
+	/*How much each in-memory holder may keep at one pressure level.*/
+	static final class Budget {
+		final long cacheBytes;      // WordCache
+		final int windowRows;       // WordPager's window, never below two pages
+		final int precomputedRows;  // WordTextPrecomputer, per list on screen
+		
+		Budget(long cacheBytes, int windowRows, int precomputedRows) {
+			this.cacheBytes = cacheBytes;
+			this.windowRows = windowRows;
+			this.precomputedRows = precomputedRows;
+		}
+	}
+	
+	/*Told when the budget drops, to give memory back now instead of on the next load.
+	Called on the main thread: hand the work to a background thread.*/
+	interface Listener {
+		void onBudgetLowered(Budget budget);
+	}
+	
+	static final long RELAX_AFTER_MILLIS = 60_000;
+	
+	private static final String TAG = "WordMemoryGovernor";
+	// Evicted ranges waiting to be read back; older ones stop being tracked.
+	private static final int MAX_TRACKED_RANGES = 8;
+	private static final WordMemoryGovernor sInstance = new WordMemoryGovernor();
+	
+	private final EnumMap<Pressure, Budget> mBudgets = new EnumMap<>(Pressure.class);
+	private final List<Listener> mListeners = new CopyOnWriteArrayList<>();
+	private Pressure mPressure = Pressure.NORMAL; // guarded by this
+	private long mPressureSince;                  // guarded by this
+	
+	private final ArrayDeque<Evicted> mEvicted = new ArrayDeque<>(); // guarded by itself
+	private final Map<String, AtomicLong> mEvictedRows = new TreeMap<>(); // guarded by itself
+	private final AtomicLong mRefetchedRows = new AtomicLong();
+	private final AtomicLong mTrims = new AtomicLong();
+	
+	private static final class Evicted {
+		final Word first;
+		final Word last;
+		int remaining;
+		
+		Evicted(Word first, Word last, int rows) {
+			this.first = first;
+			this.last = last;
+			this.remaining = rows;
+		}
+		
+		boolean contains(Word word) {
+			return WordSortKey.ORDER.compare(word, first) >= 0 && WordSortKey.ORDER.compare(word, last) <= 0;
+		}
+	}
+	
+	private WordMemoryGovernor() {
+		mBudgets.put(Pressure.NORMAL, new Budget(WordCache.DEFAULT_MAX_BYTES,
+				WordPager.DEFAULT_MAX_SIZE, WordTextPrecomputer.MAX_CACHED));
+		mBudgets.put(Pressure.LOW, new Budget(WordCache.DEFAULT_MAX_BYTES / 4,
+				3 * WordPager.DEFAULT_PAGE_SIZE, WordTextPrecomputer.DEFAULT_AHEAD));
+		mBudgets.put(Pressure.CRITICAL, new Budget(0, 2 * WordPager.DEFAULT_PAGE_SIZE, 0));
+		WordDbMetrics.get().addReporter(this);
+	}
+	
+	static WordMemoryGovernor get() {return sInstance;}
+	
+	/*The pressure a trim level stands for. Levels that only say the UI went away map to NORMAL.*/
+	static Pressure pressureOf(int level) {
+		if (level >= TRIM_MEMORY_MODERATE) return Pressure.CRITICAL; // next in line to be killed
+		if (level >= TRIM_MEMORY_BACKGROUND) return Pressure.LOW;
+		if (level == TRIM_MEMORY_UI_HIDDEN) return Pressure.NORMAL;
+		if (level >= TRIM_MEMORY_RUNNING_CRITICAL) return Pressure.CRITICAL;
+		if (level >= TRIM_MEMORY_RUNNING_MODERATE) return Pressure.LOW;
+		return Pressure.NORMAL;
+	}
+	
+	/*Replaces the budget of one level. A lower one is used from the next load or trim.*/
+	synchronized void setBudget(Pressure pressure, Budget budget) {
+		mBudgets.put(pressure, budget);
+	}
+	
+	synchronized Budget getBudget(Pressure pressure) {
+		return mBudgets.get(pressure);
+	}
+	
+	synchronized Budget getBudget() {
+		return mBudgets.get(getPressure());
+	}
+	
+	synchronized Pressure getPressure() {
+		if (mPressure != Pressure.NORMAL) {
+			long steps = (SystemClock.elapsedRealtime() - mPressureSince) / RELAX_AFTER_MILLIS;
+			if (steps > 0) {
+				mPressure = Pressure.values()[(int) Math.max(0, mPressure.ordinal() - steps)];
+				mPressureSince += steps * RELAX_AFTER_MILLIS;
+			}
+		}
+		return mPressure;
+	}
+	
+	void addListener(Listener listener) {
+		mListeners.add(listener);
+	}
+	
+	void removeListener(Listener listener) {
+		mListeners.remove(listener);
+	}
+	
+	/* ---- ComponentCallbacks2 ---- */
+	
+	@Override
+	public void onTrimMemory(int level) {
+		raise(pressureOf(level));
+	}
+	
+	@Override
+	public void onLowMemory() {
+		raise(Pressure.CRITICAL);
+	}
+	
+	@Override
+	public void onConfigurationChanged(@NonNull Configuration newConfig) {}
+	
+	private void raise(Pressure pressure) {
+		Budget budget;
+		synchronized (this) {
+			if (pressure == Pressure.NORMAL) return;
+			Pressure current = getPressure();
+			mPressureSince = SystemClock.elapsedRealtime();
+			if (pressure.compareTo(current) <= 0) return;
+			mPressure = pressure;
+			budget = mBudgets.get(pressure);
+		}
+		mTrims.incrementAndGet();
+		Log.i(TAG, "Memory pressure " + pressure + ", trimming word caches");
+		for (Listener listener : mListeners) listener.onBudgetLowered(budget);
+	}
+	
+	/* ---- metrics, reported by the holders ---- */
+	
+	/*holder dropped rows first..last (in list order) to meet the budget.*/
+	void onEvicted(String holder, Word first, Word last, int rows) {
+		if (rows <= 0) return;
+		synchronized (mEvicted) {
+			if (mEvicted.size() == MAX_TRACKED_RANGES) mEvicted.removeFirst();
+			mEvicted.addLast(new Evicted(first, last, rows));
+		}
+		onEvicted(holder, rows);
+	}
+	
+	/*holder dropped rows that can't be refetched, e.g. precomputed text.*/
+	void onEvicted(String holder, int rows) {
+		if (rows <= 0) return;
+		synchronized (mEvictedRows) {
+			AtomicLong count = mEvictedRows.get(holder);
+			if (count == null) mEvictedRows.put(holder, count = new AtomicLong());
+			count.addAndGet(rows);
+		}
+	}
+	
+	/*Called with every page read from the database; rows evicted earlier count as refetched.*/
+	void onReadFromDatabase(List<Word> rows) {
+		long refetched = 0;
+		synchronized (mEvicted) {
+			if (mEvicted.isEmpty()) return;
+			for (Word word : rows) {
+				for (Evicted range : mEvicted) {
+					if (range.remaining > 0 && range.contains(word)) {
+						range.remaining--;
+						refetched++;
+						break;
+					}
+				}
+			}
+			for (Iterator<Evicted> it = mEvicted.iterator(); it.hasNext(); ) {
+				if (it.next().remaining <= 0) it.remove();
+			}
+		}
+		mRefetchedRows.addAndGet(refetched);
+	}
+	
+	@Override
+	public String report() {
+		String evicted;
+		synchronized (mEvictedRows) {
+			evicted = mEvictedRows.toString();
+		}
+		return String.format(Locale.US, "memory: pressure=%s trims=%d evicted=%s refetched=%d",
+				getPressure(), mTrims.get(), evicted, mRefetchedRows.get());
+	}
+}
@@ -0,0 +1,24 @@
+package com.example.roomwordsample;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/* One row per background migration step still to run (see WordBackgroundMigrator), with
+how far it got. The row is deleted in the step's cut-over transaction.*/
+@Entity(tableName = "background_migration")
+public class WordMigrationState {
+	@PrimaryKey
+	@NonNull
+	@ColumnInfo(name = "name")
+	private String mName;
+	@ColumnInfo(name = "position")
+	private long mPosition;
+	public WordMigrationState(@NonNull String name, long position) {
+		this.mName = name;
+		this.mPosition = position;
+	}
+	public String getName() {return this.mName;}
+	public long getPosition() {return this.mPosition;}
+}
@@ -0,0 +1,299 @@
+package com.example.roomwordsample;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.room.InvalidationTracker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Holds a bounded window of rows from word_table for the UI.
+   Pages are fetched by keyset ((sort_key, word) past the edge row, LIMIT :n) from the edges
+   of the window, and once the window grows past maxSize the far end is dropped again.
+   When word_table changes, only the current window is re-read, not the whole table.
+   Pages are served from the WordCache when it covers them and fill it when it doesn't.
+   Under memory pressure the window and the cache are cut to the WordMemoryGovernor budget,
+   keeping the end the user was scrolling towards, and grow back only as loads need them.*/
+class WordPager implements WordPendingWrites.Bounds, WordMemoryGovernor.Listener {
+	
+	static final int DEFAULT_PAGE_SIZE = 50;
+	static final int DEFAULT_MAX_SIZE = 4 * DEFAULT_PAGE_SIZE;
+	
+	private final WordDao mWordDao;
+	private final WordCache mCache;
+	private final TrackerRegistration mRegistration;
+	private final Executor mExecutor;
+	private final int mPageSize;
+	private final int mMaxSize; // with memory to spare; see maxSize()
+	
+	private final MutableLiveData<List<Word>> mWindow = new MutableLiveData<>();
+	private final MutableLiveData<Integer> mJumps = new MutableLiveData<>();
+	private final AtomicInteger mJumpGeneration = new AtomicInteger();
+	
+	// All loads run under mLock so appends, prepends and refreshes never interleave.
+	private final Object mLock = new Object();
+	private List<Word> mRows = Collections.emptyList(); // replaced on every load, never mutated
+	// Written under mLock, volatile so the UI can ask without waiting for a load.
+	private volatile boolean mStartReached = true;
+	private volatile boolean mEndReached = false;
+	private boolean mGrewAtEnd = true; // under mLock: the window last grew at its end
+	
+	// Collapse repeated scroll callbacks into one queued load per direction.
+	private final AtomicBoolean mAppendQueued = new AtomicBoolean();
+	private final AtomicBoolean mPrependQueued = new AtomicBoolean();
+	private final AtomicBoolean mRefreshQueued = new AtomicBoolean();
+	
+	private final InvalidationTracker.Observer mObserver =
+			new InvalidationTracker.Observer("word_table") {
+				@Override
+				public void onInvalidated(@NonNull Set<String> tables) {
+					mCache.onTableInvalidated();
+					refresh();
+				}
+			};
+	
+	/*trackers are those of every database the DAO reads (several for ShardedWordDao);
+	the window is refreshed when word_table changes in any of them.*/
+	WordPager(WordDao dao, InvalidationTracker[] trackers, Executor executor, WordCache cache,
+			int pageSize, int maxSize) {
+		mWordDao = dao;
+		mCache = cache;
+		mRegistration = new TrackerRegistration(trackers, mObserver);
+		mExecutor = executor;
+		mPageSize = pageSize;
+		mMaxSize = Math.max(maxSize, 2 * pageSize);
+	}
+	
+	LiveData<List<Word>> getWindow() {
+		return mWindow;
+	}
+	
+	/*The generation jumpTo() returned, once that jump's window is in getWindow(). Posted after
+	the window, so by the time an observer sees it the window holds the jump's rows or rows
+	loaded from them.*/
+	LiveData<Integer> getJumps() {
+		return mJumps;
+	}
+	
+	/*Starts tracking word_table and loads the first page. Safe to call on the main
+	thread: both happen on the executor, the observer first, so no change slips between.*/
+	void start() {
+		WordMemoryGovernor.get().addListener(this);
+		mRegistration.set(true);
+		mExecutor.execute(() -> {
+			mRegistration.sync();
+			append();
+		});
+	}
+	
+	void stop() {
+		WordMemoryGovernor.get().removeListener(this);
+		mRegistration.setInBackground(false, mExecutor);
+	}
+	
+	@Override
+	public void onBudgetLowered(WordMemoryGovernor.Budget budget) {
+		mExecutor.execute(this::shrink);
+	}
+	
+	/*Called when the UI gets close to the end of the window.*/
+	void loadAfter() {
+		if (mAppendQueued.compareAndSet(false, true)) {
+			mExecutor.execute(() -> {
+				mAppendQueued.set(false);
+				append();
+			});
+		}
+	}
+	
+	/*Called when the UI gets close to the start of the window.*/
+	void loadBefore() {
+		if (mPrependQueued.compareAndSet(false, true)) {
+			mExecutor.execute(() -> {
+				mPrependQueued.set(false);
+				prepend();
+			});
+		}
+	}
+	
+	void refresh() {
+		if (mRefreshQueued.compareAndSet(false, true)) {
+			mExecutor.execute(() -> {
+				mRefreshQueued.set(false);
+				reload();
+			});
+		}
+	}
+	
+	/*Replaces the window with the rows from the first word whose sort key is at or after
+	sortKey, e.g. the start of a WordSectionIndex section. It is one keyset seek: nothing
+	between the old window and the new one is read. Returns the generation getJumps() will
+	report for it; nothing is reported when no row is at or after sortKey.*/
+	int jumpTo(final String sortKey) {
+		final int generation = mJumpGeneration.incrementAndGet();
+		mExecutor.execute(() -> {
+			synchronized (mLock) {
+				List<Word> page = pageFrom(new Word("", sortKey), mPageSize);
+				if (page.isEmpty()) return;
+				mStartReached = pageBefore(page.get(0), 1).isEmpty();
+				mEndReached = page.size() < mPageSize;
+				mGrewAtEnd = true;
+				publish(new ArrayList<>(page));
+				mJumps.postValue(generation);
+			}
+		});
+		return generation;
+	}
+	
+	private void append() {
+		synchronized (mLock) {
+			if (mEndReached) return;
+			List<Word> rows = mRows;
+			List<Word> page = rows.isEmpty()
+					? firstPage(mPageSize)
+					: pageAfter(rows.get(rows.size() - 1), mPageSize);
+			mEndReached = page.size() < mPageSize;
+			if (page.isEmpty() && !rows.isEmpty()) return;
+			mGrewAtEnd = true;
+			
+			ArrayList<Word> next = new ArrayList<>(rows.size() + page.size());
+			next.addAll(rows);
+			next.addAll(page);
+			int overflow = next.size() - maxSize();
+			if (overflow > 0) {
+				next.subList(0, overflow).clear();
+				mStartReached = false;
+			}
+			publish(next);
+		}
+	}
+	
+	private void prepend() {
+		synchronized (mLock) {
+			List<Word> rows = mRows;
+			if (mStartReached || rows.isEmpty()) return;
+			List<Word> page = pageBefore(rows.get(0), mPageSize);
+			mStartReached = page.size() < mPageSize;
+			if (page.isEmpty()) return;
+			mGrewAtEnd = false;
+			
+			ArrayList<Word> next = new ArrayList<>(rows.size() + page.size());
+			for (int i = page.size() - 1; i >= 0; i--) next.add(page.get(i)); // came back nearest first
+			next.addAll(rows);
+			int overflow = next.size() - maxSize();
+			if (overflow > 0) {
+				next.subList(next.size() - overflow, next.size()).clear();
+				mEndReached = false;
+			}
+			publish(next);
+		}
+	}
+	
+	/*Re-reads the rows the window currently covers. If the window starts at the top of the
+	list it is reloaded from the top, so words inserted before the old first key show up.*/
+	private void reload() {
+		synchronized (mLock) {
+			List<Word> rows = mRows;
+			int size = Math.min(Math.max(rows.size(), mPageSize), maxSize());
+			List<Word> fresh = (mStartReached || rows.isEmpty())
+					? firstPage(size)
+					: pageFrom(rows.get(0), size);
+			mEndReached = fresh.size() < size;
+			publish(new ArrayList<>(fresh));
+		}
+	}
+	
+	/*Cuts the window to the current budget, dropping the end away from where the user is
+	heading, so the rows on screen stay. The cache is cut by maxSize().*/
+	private void shrink() {
+		synchronized (mLock) {
+			List<Word> rows = mRows;
+			int overflow = rows.size() - maxSize();
+			if (overflow <= 0) return;
+			int from = mGrewAtEnd ? 0 : rows.size() - overflow;
+			WordMemoryGovernor.get().onEvicted("window", rows.get(from), rows.get(from + overflow - 1), overflow);
+			ArrayList<Word> next = new ArrayList<>(rows);
+			next.subList(from, from + overflow).clear();
+			if (mGrewAtEnd) {
+				mStartReached = false;
+			} else {
+				mEndReached = false;
+			}
+			publish(next);
+		}
+	}
+	
+	/*The window's size under the current memory budget; also applies the budget to the cache.
+	Asked on every load, so after the pressure passes both grow back as the user scrolls.*/
+	private int maxSize() {
+		WordMemoryGovernor.Budget budget = WordMemoryGovernor.get().getBudget();
+		mCache.setBudgetBytes(budget.cacheBytes);
+		return Math.max(Math.min(mMaxSize, budget.windowRows), 2 * mPageSize);
+	}
+	
+	/* Read-through page loads: the cache first, then the database. */
+	
+	private List<Word> firstPage(int limit) {
+		List<Word> page = WordDatabaseWarmUp.takeFirstPage(limit);
+		if (page != null) {
+			// Show the warmed rows now, then check them against the table.
+			refresh();
+			return page;
+		}
+		long generation = mCache.getGeneration();
+		page = mCache.getFirst(limit);
+		if (page == null) {
+			page = mWordDao.getFirstWords(limit);
+			WordMemoryGovernor.get().onReadFromDatabase(page);
+			mCache.putFirst(generation, page, page.size() < limit);
+		}
+		return page;
+	}
+	
+	private List<Word> pageAfter(Word last, int limit) {
+		long generation = mCache.getGeneration();
+		List<Word> page = mCache.getAfter(last, limit);
+		if (page == null) {
+			page = mWordDao.getWordsAfter(last.getSortKey(), last.getWord(), limit);
+			WordMemoryGovernor.get().onReadFromDatabase(page);
+			mCache.putAfter(generation, last, page, page.size() < limit);
+		}
+		return page;
+	}
+	
+	private List<Word> pageBefore(Word first, int limit) {
+		List<Word> page = mCache.getBefore(first, limit);
+		if (page == null) {
+			page = mWordDao.getWordsBefore(first.getSortKey(), first.getWord(), limit);
+			WordMemoryGovernor.get().onReadFromDatabase(page);
+		}
+		return page;
+	}
+	
+	private List<Word> pageFrom(Word first, int limit) {
+		List<Word> page = mCache.getFrom(first, limit);
+		if (page == null) {
+			page = mWordDao.getWordsFrom(first.getSortKey(), first.getWord(), limit);
+			WordMemoryGovernor.get().onReadFromDatabase(page);
+		}
+		return page;
+	}
+	
+	/*Whether the window starts at the first row / ends at the last row of the table.*/
+	@Override
+	public boolean isStartReached() {return mStartReached;}
+	
+	@Override
+	public boolean isEndReached() {return mEndReached;}
+	
+	private void publish(List<Word> rows) {
+		mRows = rows;
+		mWindow.postValue(Collections.unmodifiableList(rows));
+	}
+}
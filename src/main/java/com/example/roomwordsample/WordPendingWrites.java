@@ -0,0 +1,153 @@
+package com.example.roomwordsample;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MediatorLiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/* Words the user added that the lists from the database don't show yet.
+   overlay() merges them into a list LiveData in sort order as soon as they are added, so a
+   new word appears on the next frame instead of after the batch window, the commit, the
+   invalidation and the reload.
+   A word leaves the overlay once the database list contains it (after its commit), when its
+   batch fails (rolled back: it disappears again), or when the duplicate filter finds it was
+   already in the table. A committed word that never shows up in the list (outside the
+   window, or deleted meanwhile) is dropped after RECONCILE_TIMEOUT_MILLIS.
+   All state lives on the main thread; callbacks from other threads are posted there.*/
+final class WordPendingWrites {
+	
+	/*How far the base list reaches, to decide whether a pending word belongs in it.*/
+	interface Bounds {
+		boolean isStartReached();
+		boolean isEndReached();
+	}
+	
+	/*For lists holding the whole table.*/
+	static final Bounds WHOLE_TABLE = new Bounds() {
+		@Override
+		public boolean isStartReached() {return true;}
+		
+		@Override
+		public boolean isEndReached() {return true;}
+	};
+	
+	static final long RECONCILE_TIMEOUT_MILLIS = 2000;
+	
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	// Pending word -> whether its batch has committed. Main thread only.
+	private final TreeMap<Word, Boolean> mPending = new TreeMap<>(WordSortKey.ORDER);
+	// Bumped on every change that should re-merge the overlays.
+	private final MutableLiveData<Integer> mVersion = new MutableLiveData<>(0);
+	
+	/*Shows the word right away. Call before handing it to the write path.*/
+	void add(final Word word) {
+		runOnMain(() -> {
+			if (mPending.containsKey(word)) return;
+			mPending.put(word, false);
+			changed();
+		});
+	}
+	
+	/*The batch committed; its words stay until the list has them.*/
+	void onCommitted(final List<Word> batch) {
+		runOnMain(() -> {
+			for (Word word : batch) if (mPending.containsKey(word)) mPending.put(word, true);
+		});
+		mMainHandler.postDelayed(() -> {
+			boolean removed = false;
+			for (Word word : batch) {
+				if (Boolean.TRUE.equals(mPending.get(word))) {
+					mPending.remove(word);
+					removed = true;
+				}
+			}
+			if (removed) changed();
+		}, RECONCILE_TIMEOUT_MILLIS);
+	}
+	
+	/*The batch failed: its words are taken out of the lists again.*/
+	void onFailed(final List<Word> batch) {
+		runOnMain(() -> remove(batch));
+	}
+	
+	/*The word was already in the table; the list shows the stored one.*/
+	void onRejected(final Word word) {
+		runOnMain(() -> remove(Collections.singletonList(word)));
+	}
+	
+	/*base with the pending words merged in. base must be sorted by WordSortKey.ORDER and
+	cover the range bounds says it does.*/
+	LiveData<List<Word>> overlay(LiveData<List<Word>> base, Bounds bounds) {
+		return new Overlay(base, bounds);
+	}
+	
+	private void remove(List<Word> words) {
+		boolean removed = false;
+		for (Word word : words) removed |= mPending.remove(word) != null;
+		if (removed) changed();
+	}
+	
+	private void changed() {
+		mVersion.setValue(mVersion.getValue() + 1);
+	}
+	
+	private void runOnMain(Runnable runnable) {
+		if (Looper.myLooper() == Looper.getMainLooper()) {
+			runnable.run();
+		} else {
+			mMainHandler.post(runnable);
+		}
+	}
+	
+	private List<Word> merge(List<Word> base, Bounds bounds) {
+		if (mPending.isEmpty()) return base;
+		ArrayList<Word> merged = new ArrayList<>(base.size() + mPending.size());
+		ArrayList<Word> reconciled = new ArrayList<>();
+		int next = 0;
+		for (Map.Entry<Word, Boolean> entry : mPending.entrySet()) {
+			Word word = entry.getKey();
+			// Outside the window: the list doesn't show that part of the table.
+			if (base.isEmpty()) {
+				if (!bounds.isStartReached() || !bounds.isEndReached()) continue;
+			} else {
+				if (!bounds.isStartReached() && WordSortKey.ORDER.compare(word, base.get(0)) < 0) continue;
+				if (!bounds.isEndReached() && WordSortKey.ORDER.compare(word, base.get(base.size() - 1)) > 0) continue;
+			}
+			while (next < base.size() && WordSortKey.ORDER.compare(base.get(next), word) < 0) {
+				merged.add(base.get(next++));
+			}
+			if (next < base.size() && WordSortKey.ORDER.compare(base.get(next), word) == 0) {
+				// The database copy is there; once committed, the pending one is done.
+				if (entry.getValue()) reconciled.add(word);
+				continue;
+			}
+			merged.add(word);
+		}
+		while (next < base.size()) merged.add(base.get(next++));
+		// Nothing visible changes, so the other overlays needn't re-merge for this.
+		for (Word word : reconciled) mPending.remove(word);
+		return Collections.unmodifiableList(merged);
+	}
+	
+	private final class Overlay extends MediatorLiveData<List<Word>> {
+		private List<Word> mBase;
+		
+		Overlay(LiveData<List<Word>> base, final Bounds bounds) {
+			addSource(base, words -> {
+				mBase = words;
+				setValue(words == null ? null : merge(words, bounds));
+			});
+			addSource(mVersion, version -> {
+				if (mBase != null) setValue(merge(mBase, bounds));
+			});
+		}
+	}
+}
@@ -1,33 +1,362 @@
 package com.example.roomwordsample;
 
 import android.app.Application;
+import android.database.Cursor;
 
+import androidx.annotation.NonNull;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.room.InvalidationTracker;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 
 public class WordRepository {
 	
+	static final int SEARCH_LIMIT = 100;
+	private static final Pattern WHITESPACE = Pattern.compile("\\s");
+	
+	private final Application mApplication;
+	private WordRoomDatabase mDatabase; // null with sharding on
+	private WordShards mShards;         // null with sharding off
 	private WordDao mWordDao;
 	private LiveData<List<Word>> mAllWords;
+	private WordCache mCache;
+	private WordPager mPager;
+	private WordWriteBatcher mWriteBatcher;
+	private WordDuplicateFilter mDuplicateFilter;
+	private WordTransfer mTransfer;
+	private WordDeleter mDeleter;
+	private WordChangeFeed mChangeFeed;
+	private WordStream<List<Word>> mWordStream;
+	private WordStream<List<WordChange>> mChangeStream;
+	private WordStream<List<Word>> mCommitStream = new WordStream<>(null);
+	private LiveData<CompactWordList> mCompactWords;
+	private LiveData<WordCursorList> mCursorWords;
+	private LiveData<List<Word>> mWordWindow;
+	private LiveData<WordSectionIndex> mSectionIndex;
+	private final WordPendingWrites mPendingWrites = new WordPendingWrites();
 	
+	/*With sharding on (see WordApplication) everything below runs on the sharded DAO,
+	except the change feed and the cursor list, which need a single database file.*/
 	WordRepository(Application application) {
-		WordRoomDatabase db = WordRoomDatabase.getDatabase(application);
-		mWordDao = db.wordDao();
-		mAllWords = mWordDao.getAlphabetizedWords();
+		mApplication = application;
+		WordShards shards = WordRoomDatabase.getShards(application);
+		mShards = shards;
+		InvalidationTracker[] trackers;
+		if (shards == null) {
+			WordRoomDatabase db = WordRoomDatabase.getDatabase(application);
+			mDatabase = db;
+			mWordDao = db.instrumentedWordDao();
+			trackers = new InvalidationTracker[]{db.getInvalidationTracker()};
+			mDuplicateFilter = db.getDuplicateFilter();
+			mChangeFeed = db.getChangeFeed();
+			mCursorWords = WordCursorList.observe(db);
+		} else {
+			mWordDao = shards.wordDao();
+			trackers = shards.invalidationTrackers();
+			mDuplicateFilter = shards.getDuplicateFilter();
+		}
+		mCache = new WordCache(WordCache.DEFAULT_MAX_BYTES);
+		mPager = new WordPager(mWordDao, trackers, WordRoomDatabase.databaseReadExecutor, mCache,
+				WordPager.DEFAULT_PAGE_SIZE, WordPager.DEFAULT_MAX_SIZE);
+		mPager.start();
+		mWordWindow = mPendingWrites.overlay(mPager.getWindow(), mPager);
+		mSectionIndex = Transformations.map(mWordDao.getSectionCounts(), WordSectionIndex::of);
+		// With shards this thread only splits the batch; the shards' own writers commit it.
+		mWriteBatcher = new WordWriteBatcher(mWordDao, WordRoomDatabase.databaseWriteExecutor,
+				WordWriteBatcher.DEFAULT_WINDOW_MILLIS, WordWriteBatcher.DEFAULT_MAX_BATCH,
+				mBatchListener);
+		mTransfer = new WordTransfer(mWordDao, WordRoomDatabase.databaseWriteExecutor);
+		mDeleter = new WordDeleter(mWordDao, WordRoomDatabase.databaseWriteExecutor);
+		mWordStream = new WordStream<>(new TableReloadSource<List<Word>>(trackers,
+				() -> Collections.unmodifiableList(mWordDao.loadAlphabetizedWords())));
+		// From the stream rather than Room's LiveData, so every read is timed by WordDbMetrics.
+		mAllWords = mPendingWrites.overlay(mWordStream.toLiveData(), WordPendingWrites.WHOLE_TABLE);
+		mCompactWords = new WordStream<>(new TableReloadSource<CompactWordList>(trackers, () -> {
+			try (Cursor cursor = mWordDao.loadAlphabetizedWordCursor()) {
+				return CompactWordList.fromCursor(cursor);
+			}
+		})).toLiveData();
+		mChangeStream = new WordStream<>(new WordStream.Source<List<WordChange>>() {
+			private WordChangeFeed.Listener mListener;
+			
+			@Override
+			public void start(WordStream<List<WordChange>> stream) {
+				mListener = stream::publish;
+				changeFeed().addListener(mListener);
+			}
+			
+			@Override
+			public void stop() {
+				changeFeed().removeListener(mListener);
+			}
+		});
 	}
 	
+	/*Our own commits update the cache in place, then the window is re-read from it.
+	The invalidation that follows drops the cache and refreshes again (see WordCache).*/
+	private final WordWriteBatcher.Listener mBatchListener = new WordWriteBatcher.Listener() {
+		@Override
+		public void onBatchCommitted(List<Word> batch, long[] rowIds) {
+			mCache.onLocalWriteCommitted(batch, rowIds);
+			mPager.refresh();
+			mPendingWrites.onCommitted(batch);
+			// Don't wait for the invalidation round trip to publish our own deltas.
+			// A no-op while the feed has no listeners.
+			if (mChangeFeed != null) mChangeFeed.poll();
+			ArrayList<Word> inserted = new ArrayList<>(batch.size());
+			for (int i = 0; i < batch.size(); i++) if (rowIds[i] != -1) inserted.add(batch.get(i));
+			if (!inserted.isEmpty()) mCommitStream.publish(inserted);
+		}
+		
+		@Override
+		public void onBatchFailed(List<Word> batch, RuntimeException e) {
+			mPendingWrites.onFailed(batch);
+		}
+	};
+	
+	/*Single inserts from the UI: words the filter finds in the table leave the overlay.*/
+	private final WordDuplicateFilter.Sink mInsertSink = new WordDuplicateFilter.Sink() {
+		@Override
+		public void accept(Word word) {
+			mWriteBatcher.add(word);
+		}
+		
+		@Override
+		public void reject(Word word) {
+			mPendingWrites.onRejected(word);
+		}
+	};
+	
+	/*Re-reads a value on a reader thread whenever word_table changes, while the stream has
+	subscribers. Changes arriving during a load collapse into one reload.*/
+	private static final class TableReloadSource<T> implements WordStream.Source<T> {
+		interface Loader<T> {
+			T load();
+		}
+		
+		private final TrackerRegistration mRegistration;
+		private final Loader<T> mLoader;
+		private final AtomicBoolean mLoadQueued = new AtomicBoolean();
+		private volatile WordStream<T> mStream;
+		
+		private final InvalidationTracker.Observer mObserver =
+				new InvalidationTracker.Observer("word_table") {
+					@Override
+					public void onInvalidated(@NonNull Set<String> tables) {
+						load();
+					}
+				};
+		
+		TableReloadSource(InvalidationTracker[] trackers, Loader<T> loader) {
+			mRegistration = new TrackerRegistration(trackers, mObserver);
+			mLoader = loader;
+		}
+		
+		/*Called on the subscriber's thread, the main one for toLiveData(): the observer is
+		added on the reader pool, before the first load.*/
+		@Override
+		public void start(WordStream<T> stream) {
+			mStream = stream;
+			mRegistration.set(true);
+			WordRoomDatabase.databaseReadExecutor.execute(() -> {
+				mRegistration.sync();
+				load();
+			});
+		}
+		
+		@Override
+		public void stop() {
+			mRegistration.setInBackground(false, WordRoomDatabase.databaseReadExecutor);
+			mStream = null;
+		}
+		
+		private void load() {
+			if (mLoadQueued.compareAndSet(false, true)) {
+				WordRoomDatabase.databaseReadExecutor.execute(() -> {
+					mLoadQueued.set(false);
+					WordStream<T> stream = mStream;
+					if (stream != null) stream.publish(mLoader.load());
+				});
+			}
+		}
+	}
+
 /*Room executes all queries on a separate thread. Observed LiveData will notify the observer
     when the data has changed.*/
 	LiveData<List<Word>> getAllWords() {
 		return mAllWords;
 	}
 	
+	/*The whole alphabetized list in compact form (see CompactWordList), read straight from
+	a cursor without creating a Word or String per row. For showing the full list of a large
+	table in WordListAdapter when paging isn't wanted.*/
+	LiveData<CompactWordList> getCompactWords() {
+		return mCompactWords;
+	}
+	
+	/*The whole alphabetized list backed by cursor windows: rows are only read when bound,
+	so showing the first screen doesn't depend on the table size. Like getCompactWords(), an
+	alternative to the paged window MainActivity shows, for screens that want the full list
+	without the pager's section jumps and pending-write overlay.*/
+	LiveData<WordCursorList> getCursorWords() {
+		if (mCursorWords == null) throw new IllegalStateException("No cursor list with sharding on");
+		return mCursorWords;
+	}
+	
+	/*A bounded window of the alphabetized list, paged in as the UI scrolls.
+	Prefer this over getAllWords() for large tables.*/
+	LiveData<List<Word>> getWordWindow() {
+		return mWordWindow;
+	}
+	
+	/*Where each first letter starts in the list, from the trigger-kept counts: O(sections)
+	per change, never a scan of the words. For a fast-scroller.*/
+	LiveData<WordSectionIndex> getSectionIndex() {
+		return mSectionIndex;
+	}
+	
+	/*Moves the window to the start of a section of getSectionIndex(). Returns the generation
+	getJumps() reports once the window shows it.*/
+	int jumpToSection(WordSectionIndex index, int section) {
+		return mPager.jumpTo(index.getStartKey(section));
+	}
+	
+	LiveData<Integer> getJumps() {
+		return mPager.getJumps();
+	}
+	
+	private boolean areSortKeysReady() {
+		return mShards != null ? mShards.areSortKeysReady() : mDatabase.areSortKeysReady();
+	}
+	
+	/*Prefix search, e.g. "app" matches "apple" and "Application". A single word is looked up
+	by sort key, which reads no more than SEARCH_LIMIT rows; a phrase of several words goes
+	through the full-text index, and so does a single word while the sort keys are still being
+	backfilled (see WordRoomDatabase.areSortKeysReady). Double quotes would end the phrase
+	the DAO wraps the query in, so they are dropped.*/
+	LiveData<List<Word>> searchWords(String query) {
+		String prefix = query == null ? "" : query.replace("\"", " ").trim();
+		if (prefix.isEmpty()) {
+			return new MutableLiveData<>(Collections.emptyList());
+		}
+		if (WHITESPACE.matcher(prefix).find() || !areSortKeysReady()) {
+			return mWordDao.searchByPhrasePrefix(prefix, SEARCH_LIMIT);
+		}
+		return mWordDao.searchByPrefix(WordSortKey.of(prefix), SEARCH_LIMIT);
+	}
+	
+	/*Typed deltas (inserted, deleted, cleared) with sort positions, for consumers that keep
+	their own copy of the list. The listener runs on the database writer thread, so it
+	should hand slow work elsewhere; observeChanges() does that for you.*/
+	void addChangeListener(WordChangeFeed.Listener listener) {
+		changeFeed().addListener(listener);
+	}
+	
+	void removeChangeListener(WordChangeFeed.Listener listener) {
+		changeFeed().removeListener(listener);
+	}
+	
+	private WordChangeFeed changeFeed() {
+		if (mChangeFeed == null) throw new IllegalStateException("No change feed with sharding on");
+		return mChangeFeed;
+	}
+	
+	/* Streams for consumers off the main thread; each subscriber picks its own scheduler
+	and backpressure (see WordStream). */
+	
+	/*The whole alphabetized list, re-read after every change. For large tables prefer
+	observeChanges().*/
+	WordStream<List<Word>> observeWords() {
+		return mWordStream;
+	}
+	
+	/*Delta batches from the change feed. Subscribe with BUFFER: LATEST or DROP would lose
+	deltas.*/
+	WordStream<List<WordChange>> observeChanges() {
+		return mChangeStream;
+	}
+	
+	/*The words each of the repository's own write batches actually inserted.*/
+	WordStream<List<Word>> observeCommits() {
+		return mCommitStream;
+	}
+	
+	void loadAfter() {mPager.loadAfter();}
+	void loadBefore() {mPager.loadBefore();}
+	
+	/*Stops observing the database. Call when the owner (the ViewModel) is cleared.*/
+	void close() {
+		mWriteBatcher.flush();
+		mPager.stop();
+		WordCursorList cursorWords = mCursorWords == null ? null : mCursorWords.getValue();
+		if (cursorWords != null) cursorWords.close();
+	}
+	
 	/*You must call this on a non-UI thread or your app will throw an exception.
-	Room ensures that you're not doing any long running operations on the main thread, blocking the UI.*/
+	Room ensures that you're not doing any long running operations on the main thread, blocking the UI.
+	Inserts are coalesced: words arriving close together are committed in one transaction.
+	Words already in the table are dropped by the duplicate filter before they get that far.
+	getAllWords() and getWordWindow() show the word right away, before it is committed.*/
 	void insert(Word word) {
-		WordRoomDatabase.databaseWriteExecutor.execute(() -> {
-			mWordDao.insert(word);
+		mPendingWrites.add(word);
+		mDuplicateFilter.offer(word, mInsertSink);
+	}
+	
+	/*Bulk insert for ingest jobs, committed in transactions of up to DEFAULT_MAX_BATCH words.*/
+	void insertAll(List<Word> words) {
+		mDuplicateFilter.offerAll(words, mWriteBatcher::add);
+	}
+	
+	/*Streams a word file into the table in chunked transactions. Words already in the
+	table are skipped. The listener is called on the transfer thread. The database runs on
+	INGEST_HEAVY until the import ends.*/
+	WordTransfer.Task importWords(File file, WordTransfer.Format format, final WordTransfer.Listener listener) {
+		WordRoomDatabase.beginIngest(mApplication);
+		return mTransfer.importFrom(file, format, new WordTransfer.Listener() {
+			@Override
+			public void onProgress(long words, long bytes, long totalBytes) {
+				listener.onProgress(words, bytes, totalBytes);
+			}
+			
+			@Override
+			public void onComplete(long words) {
+				WordRoomDatabase.endIngest(mApplication);
+				listener.onComplete(words);
+			}
+			
+			@Override
+			public void onError(Exception e) {
+				WordRoomDatabase.endIngest(mApplication);
+				listener.onError(e);
+			}
 		});
 	}
+	
+	/*Streams the table out to a word file in list order.*/
+	WordTransfer.Task exportWords(File file, WordTransfer.Format format, WordTransfer.Listener listener) {
+		return mTransfer.exportTo(file, format, listener);
+	}
+	
+	/*Purges run in the background in small transactions, so reads and inserts keep going
+	while they do. The listener is called on the delete thread.*/
+	WordDeleter.Task deleteAll(WordDeleter.Listener listener) {
+		return mDeleter.deleteAll(listener);
+	}
+	
+	/*Either bound may be null for an open end (see WordDeleter.deleteRange).*/
+	WordDeleter.Task deleteRange(String fromWord, String toWord, WordDeleter.Listener listener) {
+		return mDeleter.deleteRange(fromWord, toWord, listener);
+	}
+	
+	WordDeleter.Task deleteMatching(WordDeleter.Filter filter, WordDeleter.Listener listener) {
+		return mDeleter.deleteMatching(filter, listener);
+	}
 }
@@ -2,34 +2,118 @@ package com.example.roomwordsample;
 
 
 import android.content.Context;
+import android.database.Cursor;
 
 import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
 import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
-@Database(entities = {Word.class}, version = 1, exportSchema = false)
+
+/* The schema of every version is exported as JSON so migrations can be checked against it:
+the app module's build passes room.schemaLocation = "$projectDir/schemas" to the
+annotation processor, and the generated schemas/ directory belongs in version control. Migrations do only the quick structural
+part of an upgrade; backfills and index builds run after the open in WordBackgroundMigrator.*/
+@Database(entities = {Word.class, WordFts.class, WordChangeLog.class, WordSectionCount.class,
+		WordMigrationState.class}, version = 6, exportSchema = true)
 public abstract class WordRoomDatabase extends RoomDatabase {
 	
 	public WordDao wordDao;
 	
 	private static volatile WordRoomDatabase INSTANCE;
-	private static final int NUMBER_OF_THREADS = 4;
-	static final ExecutorService databaseWriteExecutor =
-			Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+	/* SQLite allows one writer at a time, so all writes go through a single thread:
+	they never queue on the database lock and commit in the order they were submitted.
+	Reads (Room's LiveData queries and the pager) get their own bounded pool.*/
+	private static final int NUMBER_OF_READ_THREADS =
+			Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+	static final InstrumentedExecutor databaseWriteExecutor =
+			new InstrumentedExecutor("word-db-writer", 1);
+	static final InstrumentedExecutor databaseReadExecutor =
+			new InstrumentedExecutor("word-db-reader", NUMBER_OF_READ_THREADS);
+	
+	// Read once, when the database is built; WordApplication.onCreate sets it.
+	private static volatile StorageProfile sStorageProfile = StorageProfile.READ_HEAVY;
+	
+	/*Must be called before the first getDatabase() to take effect at build time.*/
+	static void setStorageProfile(StorageProfile profile) {
+		sStorageProfile = profile;
+	}
+	
+	// Also read once, on first use. Null when sharding is off (the default).
+	private static volatile WordShards.Partitioner sShardPartitioner;
+	private static volatile int sShardCount;
+	private static volatile WordShards sShards;
+	
+	/*Splits the words across count database files (see WordShards). Like the storage profile
+	it must be set before first use, and it must stay the same for an install: the shards
+	don't move words between them.*/
+	static void setSharding(int count, WordShards.Partitioner partitioner) {
+		sShardCount = count;
+		sShardPartitioner = partitioner;
+	}
+	
+	/*The shards, or null when sharding is off.*/
+	static WordShards getShards(final Context context) {
+		if (sShards == null && sShardPartitioner != null) {
+			synchronized (WordRoomDatabase.class) {
+				if (sShards == null) {
+					sShards = new WordShards(context.getApplicationContext(), sShardCount, sShardPartitioner);
+				}
+			}
+		}
+		return sShards;
+	}
+	
+	/*Schema, storage profile and reader pool shared by the main database and the shards.
+	name null builds an in-memory database.*/
+	private static RoomDatabase.Builder<WordRoomDatabase> newBuilder(Context context, String name,
+			StorageProfile profile) {
+		Context app = context.getApplicationContext();
+		return (name == null ? Room.inMemoryDatabaseBuilder(app, WordRoomDatabase.class)
+				: Room.databaseBuilder(app, WordRoomDatabase.class, name))
+				.setQueryExecutor(databaseReadExecutor)
+				.setJournalMode(profile.journalMode)
+				.addCallback(profile.asCallback())
+				.addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6)
+				.addCallback(WordSectionIndex.TRIGGER_CALLBACK);
+	}
+	
+	/*One shard: no change feed (it isn't used with shards), and seeder is the one all shards
+	share (WordSeeder.forShards). Its background migrations run on its own writer.*/
+	static WordRoomDatabase buildShard(Context context, String name, Executor writeExecutor, WordSeeder seeder) {
+		WordRoomDatabase shard = newBuilder(context, name, sStorageProfile).addCallback(seeder).build();
+		shard.startBackgroundMigrations(writeExecutor);
+		return shard;
+	}
+	
+	/*The single database as getDatabase() builds it, triggers and all, but without the
+	seeder, the prepackaged copy and the background migrations; for benchmarks and tests.
+	name null builds an in-memory database.*/
+	static RoomDatabase.Builder<WordRoomDatabase> unseededBuilder(Context context, String name,
+			StorageProfile profile) {
+		return newBuilder(context, name, profile).addCallback(WordChangeFeed.RESET_CALLBACK);
+	}
 	
 	static WordRoomDatabase getDatabase(final Context context) {
 		if (INSTANCE == null) {
 			synchronized (WordRoomDatabase.class) {
 				if (INSTANCE== null) {
-					INSTANCE = Room.databaseBuilder(context.getApplicationContext(),
-							WordRoomDatabase.class, "word_database")
-							.addCallback(sRoomDatabaseCallback)
-							.build();
+					// Seeds on create and on a seed version bump, not on every open.
+					WordSeeder seeder = new WordSeeder(context);
+					RoomDatabase.Builder<WordRoomDatabase> builder =
+							unseededBuilder(context, "word_database", sStorageProfile).addCallback(seeder);
+					if (WordSeeder.hasPrepackagedDatabase(context)) {
+						// Copied once, on first open, instead of inserting row by row; never seeded.
+						builder.createFromAsset(WordSeeder.PREPACKAGED_DATABASE_ASSET, seeder.getPrepackagedCallback());
+					}
+					INSTANCE = builder.build();
+					INSTANCE.startBackgroundMigrations(databaseWriteExecutor);
 				}
 			}
 		}
@@ -39,31 +123,224 @@ public abstract class WordRoomDatabase extends RoomDatabase {
 	
 	public abstract WordDao wordDao();
 	
-	private static RoomDatabase.Callback sRoomDatabaseCallback = new RoomDatabase.Callback() {
+	/*Only for WordChangeFeed.*/
+	public abstract WordChangeLogDao changeLogDao();
+	
+	private volatile WordDao mInstrumentedWordDao;
+	
+	/*wordDao() behind WordDbMetrics, so each call is timed and its rows counted.
+	App code should use this one.*/
+	WordDao instrumentedWordDao() {
+		if (mInstrumentedWordDao == null) {
+			mInstrumentedWordDao = WordDbMetrics.wrap(wordDao());
+		}
+		return mInstrumentedWordDao;
+	}
+	
+	/*Version 2 adds the word_fts full-text index and fills it from the existing rows.
+	The SQL matches what Room generates for WordFts.*/
+	static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+		@Override
+		public void migrate(@NonNull SupportSQLiteDatabase db) {
+			db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `word_fts` USING FTS4(`word` TEXT NOT NULL, content=`word_table`)");
+			db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_word_fts_BEFORE_UPDATE BEFORE UPDATE ON `word_table` BEGIN DELETE FROM `word_fts` WHERE `docid`=OLD.`rowid`; END");
+			db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_word_fts_BEFORE_DELETE BEFORE DELETE ON `word_table` BEGIN DELETE FROM `word_fts` WHERE `docid`=OLD.`rowid`; END");
+			db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_word_fts_AFTER_UPDATE AFTER UPDATE ON `word_table` BEGIN INSERT INTO `word_fts`(`docid`, `word`) VALUES (NEW.`rowid`, NEW.`word`); END");
+			db.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_word_fts_AFTER_INSERT AFTER INSERT ON `word_table` BEGIN INSERT INTO `word_fts`(`docid`, `word`) VALUES (NEW.`rowid`, NEW.`word`); END");
+			db.execSQL("INSERT INTO word_fts(word_fts) VALUES('rebuild')");
+		}
+	};
+	
+	/*Version 3 adds word_change_log. WordChangeFeed installs its triggers while it has listeners.*/
+	static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+		@Override
+		public void migrate(@NonNull SupportSQLiteDatabase db) {
+			db.execSQL("CREATE TABLE IF NOT EXISTS `word_change_log` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `op` INTEGER NOT NULL, `word` TEXT NOT NULL)");
+		}
+	};
+	
+	private static final int SORT_KEY_BACKFILL_CHUNK = 1000;
+	private static final String SORT_KEY_INDEX_SQL =
+			"CREATE INDEX IF NOT EXISTS `index_word_table_sort_key_word` ON `word_table` (`sort_key`, `word`)";
+	private static final String BACKGROUND_MIGRATION_TABLE_SQL =
+			"CREATE TABLE IF NOT EXISTS `background_migration` (`name` TEXT NOT NULL, `position` INTEGER NOT NULL, PRIMARY KEY(`name`))";
+	private static final String SORT_KEY_SHADOW_TABLE_SQL =
+			"CREATE TABLE IF NOT EXISTS `word_sort_key_backfill` (`row_id` INTEGER PRIMARY KEY NOT NULL, `sort_key` TEXT NOT NULL)";
+	// Until the cut-over a row inserted with its key puts the key aside and reads as '' like the rest.
+	private static final String SORT_KEY_PENDING_TRIGGER_SQL =
+			"CREATE TRIGGER IF NOT EXISTS word_sort_key_pending AFTER INSERT ON `word_table` WHEN NEW.`sort_key` != '' BEGIN "
+					+ "INSERT OR REPLACE INTO `word_sort_key_backfill` (`row_id`, `sort_key`) VALUES (NEW.rowid, NEW.`sort_key`); "
+					+ "UPDATE `word_table` SET `sort_key` = '' WHERE rowid = NEW.rowid; END";
+	
+	/*Version 4 adds the sort_key column and its index. Only the structure changes here: the
+	column is added with '' for every row, which costs nothing in SQLite, and the index is
+	built over those empty keys, which is one sort of the words. The keys themselves need
+	Java for the Unicode folding, so they are computed afterwards by SORT_KEY_BACKFILL into
+	word_sort_key_backfill. Until it cuts over, every row keeps '' (see areSortKeysReady()).
+	word_change_log only holds rows the feed hasn't read yet, so it is simply recreated with
+	the new column, and the feed reinstalls its triggers when it next gets a listener.*/
+	static final Migration MIGRATION_3_4 = new Migration(3, 4) {
 		@Override
-		public void onOpen(@NonNull SupportSQLiteDatabase db) {
-			super.onOpen(db);
+		public void migrate(@NonNull SupportSQLiteDatabase db) {
+			for (String trigger : WordChangeFeed.TRIGGER_NAMES) db.execSQL("DROP TRIGGER IF EXISTS " + trigger);
+			db.execSQL("DROP TABLE IF EXISTS `word_change_log`");
+			db.execSQL("CREATE TABLE IF NOT EXISTS `word_change_log` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `op` INTEGER NOT NULL, `word` TEXT NOT NULL, `sort_key` TEXT NOT NULL)");
 			
-			// If you want to keep data through app restarts,
-			// comment out the following block
-			databaseWriteExecutor.execute(() -> {
-				// Populate the database in the background.
-				// If you want to start with more words, just add them.
-				WordDao dao = INSTANCE.wordDao();
-				dao.deleteAll();
-				
-				Word word = new Word("Hello");
-				dao.insert(word);
-				word = new Word("there");
-				dao.insert(word);
-				word = new Word("this");
-				dao.insert(word);
-				word = new Word("is");
-				dao.insert(word);
-				word = new Word("me");
-				dao.insert(word);
-			});
+			db.execSQL("ALTER TABLE `word_table` ADD COLUMN `sort_key` TEXT NOT NULL DEFAULT ''");
+			db.execSQL(SORT_KEY_INDEX_SQL);
+			db.execSQL(SORT_KEY_SHADOW_TABLE_SQL);
+			db.execSQL(SORT_KEY_PENDING_TRIGGER_SQL);
+			db.execSQL(BACKGROUND_MIGRATION_TABLE_SQL);
+			WordBackgroundMigrator.register(db, SORT_KEY_BACKFILL.name);
 		}
 	};
+	
+	/*Computes the sort keys MIGRATION_3_4 left out, walking the rows by rowid and putting
+	SORT_KEY_BACKFILL_CHUNK keys per transaction aside in word_sort_key_backfill, so the
+	writer is never held for long and word_table doesn't change. Readers keep the old layout
+	meanwhile: every key is '', so the list is in word order. Words inserted meanwhile already
+	have their keys set aside by the pending trigger, and those win over the ones computed here.
+	The cut-over writes every key in one UPDATE, in one transaction with dropping the trigger
+	and the side table, so readers go from the old order to the new one at once. It is the one
+	long write of the migration: WAL readers keep reading the old snapshot while it runs, and
+	only writes queue behind it, once.*/
+	static final WordBackgroundMigrator.Step SORT_KEY_BACKFILL = new WordBackgroundMigrator.Step("sort_key_backfill") {
+		@Override
+		long runChunk(SupportSQLiteDatabase db, long position) {
+			SupportSQLiteStatement insert = db.compileStatement(
+					"INSERT OR IGNORE INTO `word_sort_key_backfill` (`row_id`, `sort_key`) VALUES (?, ?)");
+			long lastRowId = position;
+			int rows = 0;
+			try (Cursor cursor = db.query("SELECT rowid, `word` FROM `word_table` WHERE rowid > ? "
+					+ "ORDER BY rowid LIMIT " + SORT_KEY_BACKFILL_CHUNK, new Object[]{position})) {
+				while (cursor.moveToNext()) {
+					lastRowId = cursor.getLong(0);
+					rows++;
+					insert.bindLong(1, lastRowId);
+					insert.bindString(2, WordSortKey.of(cursor.getString(1)));
+					insert.executeInsert();
+				}
+			}
+			return rows < SORT_KEY_BACKFILL_CHUNK ? WordBackgroundMigrator.DONE : lastRowId;
+		}
+		
+		@Override
+		void cutOver(SupportSQLiteDatabase db) {
+			db.execSQL("DROP TRIGGER IF EXISTS word_sort_key_pending");
+			db.execSQL("UPDATE `word_table` SET `sort_key` = (SELECT `sort_key` FROM `word_sort_key_backfill` "
+					+ "WHERE `row_id` = `word_table`.rowid) WHERE rowid IN (SELECT `row_id` FROM `word_sort_key_backfill`)");
+			db.execSQL("DROP TABLE IF EXISTS `word_sort_key_backfill`");
+		}
+	};
+	
+	static final WordBackgroundMigrator.Step[] BACKGROUND_STEPS = {SORT_KEY_BACKFILL};
+	
+	/*Version 5 adds word_section_count, filled here from the existing rows in one grouped
+	scan. From then on the triggers WordSectionIndex installs on open keep it up to date.*/
+	static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+		@Override
+		public void migrate(@NonNull SupportSQLiteDatabase db) {
+			db.execSQL("CREATE TABLE IF NOT EXISTS `word_section_count` (`section` TEXT NOT NULL, `count` INTEGER NOT NULL, PRIMARY KEY(`section`))");
+			db.execSQL("INSERT INTO `word_section_count` (`section`, `count`) "
+					+ "SELECT substr(`sort_key`, 1, 1), COUNT(*) FROM `word_table` GROUP BY substr(`sort_key`, 1, 1)");
+		}
+	};
+	
+	/*Version 6 adds background_migration for WordBackgroundMigrator. Databases coming from
+	version 3 or older already have it from MIGRATION_3_4.*/
+	static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+		@Override
+		public void migrate(@NonNull SupportSQLiteDatabase db) {
+			db.execSQL(BACKGROUND_MIGRATION_TABLE_SQL);
+		}
+	};
+	
+	/*Called after a background migration cut over: feed consumers must re-read the list.
+	LiveData queries and the pager already reload on the invalidation.*/
+	void onLayoutChanged() {
+		WordChangeFeed feed = mChangeFeed;
+		if (feed != null) feed.reload();
+	}
+	
+	private volatile WordBackgroundMigrator mMigrator;
+	
+	/*Runs the pending background migrations on writeExecutor. The first task also opens the
+	database, so call this right after building it.*/
+	void startBackgroundMigrations(Executor writeExecutor) {
+		mMigrator = new WordBackgroundMigrator(this, writeExecutor, BACKGROUND_STEPS);
+		mMigrator.start();
+	}
+	
+	/*False until SORT_KEY_BACKFILL has cut over. Every sort_key is '' until then: the list is
+	in word order, section counts hold one section, and seeks on sort_key for a prefix find
+	nothing, so searches go through word_fts instead.*/
+	boolean areSortKeysReady() {
+		WordBackgroundMigrator migrator = mMigrator;
+		return migrator == null || !migrator.isPending(SORT_KEY_BACKFILL.name);
+	}
+	
+	private volatile WordChangeFeed mChangeFeed;
+	
+	/*The single change feed for this database.*/
+	WordChangeFeed getChangeFeed() {
+		if (mChangeFeed == null) {
+			synchronized (this) {
+				if (mChangeFeed == null) mChangeFeed = new WordChangeFeed(this);
+			}
+		}
+		return mChangeFeed;
+	}
+	
+	private volatile WordDuplicateFilter mDuplicateFilter;
+	
+	/*The duplicate filter for this database, built in the background on first use.*/
+	WordDuplicateFilter getDuplicateFilter() {
+		if (mDuplicateFilter == null) {
+			synchronized (this) {
+				if (mDuplicateFilter == null) {
+					mDuplicateFilter = new WordDuplicateFilter(instrumentedWordDao(), getQueryExecutor(),
+							databaseWriteExecutor);
+					mDuplicateFilter.start();
+				}
+			}
+		}
+		return mDuplicateFilter;
+	}
+	
+	// Imports in flight, counted from the call so a queued one keeps the ingest settings.
+	private static final AtomicInteger sIngests = new AtomicInteger();
+	
+	/*Bulk imports run on INGEST_HEAVY; the built profile comes back when the last one ends.
+	Call endIngest once for every beginIngest, whether the import succeeded or not.*/
+	static void beginIngest(final Context context) {
+		if (sIngests.getAndIncrement() == 0) applyStorageProfile(context, StorageProfile.INGEST_HEAVY);
+	}
+	
+	static void endIngest(final Context context) {
+		if (sIngests.decrementAndGet() == 0) applyStorageProfile(context, sStorageProfile);
+	}
+	
+	/*Switches the PRAGMAs of the running database, or of every shard, on its writer thread
+	behind queued writes. The journal mode can't change here; it stays as it was built.*/
+	private static void applyStorageProfile(final Context context, final StorageProfile profile) {
+		WordShards shards = getShards(context);
+		if (shards == null) {
+			databaseWriteExecutor.execute(() ->
+					profile.apply(getDatabase(context).getOpenHelper().getWritableDatabase()));
+			return;
+		}
+		for (int i = 0; i < shards.count(); i++) {
+			final WordRoomDatabase shard = shards.database(i);
+			shards.writeExecutor(i).execute(() ->
+					profile.apply(shard.getOpenHelper().getWritableDatabase()));
+		}
+	}
+	
+	/*Queue depth, wait time and run time of the writer and reader executors.*/
+	static String getExecutorStats() {
+		String stats = databaseWriteExecutor.getStats() + "\n" + databaseReadExecutor.getStats();
+		WordShards shards = sShards;
+		return shards == null ? stats : stats + "\n" + shards.getExecutorStats();
+	}
 }
 
@@ -0,0 +1,101 @@
+package com.example.roomwordsample;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.core.content.ContextCompat;
+
+/* Fast-scroller: the sections of a WordSectionIndex as a column of letters along the list.
+   Touching or dragging over a letter reports its section once, and the list jumps there
+   (see WordPager.jumpTo), so a jump costs the same wherever it lands.*/
+public class WordSectionBar extends View {
+	
+	interface Listener {
+		void onSectionSelected(WordSectionIndex index, int section);
+	}
+	
+	private static final float TEXT_SIZE_SP = 12;
+	
+	private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private final Paint mSelectedPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+	private WordSectionIndex mIndex = WordSectionIndex.EMPTY;
+	private int mSelected = -1;
+	private Listener mListener;
+	
+	public WordSectionBar(Context context) {
+		this(context, null);
+	}
+	
+	public WordSectionBar(Context context, AttributeSet attrs) {
+		super(context, attrs);
+		float textSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, TEXT_SIZE_SP,
+				getResources().getDisplayMetrics());
+		mPaint.setTextSize(textSize);
+		mPaint.setTextAlign(Paint.Align.CENTER);
+		mPaint.setColor(ContextCompat.getColor(context, R.color.colorPrimary));
+		mSelectedPaint.set(mPaint);
+		mSelectedPaint.setColor(ContextCompat.getColor(context, R.color.colorAccent));
+		mSelectedPaint.setFakeBoldText(true);
+	}
+	
+	void setListener(Listener listener) {
+		mListener = listener;
+	}
+	
+	void setIndex(WordSectionIndex index) {
+		mIndex = index == null ? WordSectionIndex.EMPTY : index;
+		mSelected = -1;
+		invalidate();
+	}
+	
+	@Override
+	protected void onDraw(Canvas canvas) {
+		super.onDraw(canvas);
+		int count = mIndex.getSectionCount();
+		if (count == 0) return;
+		float slot = (float) (getHeight() - getPaddingTop() - getPaddingBottom()) / count;
+		float x = getWidth() / 2f;
+		float baseline = (slot - mPaint.ascent() - mPaint.descent()) / 2;
+		for (int i = 0; i < count; i++) {
+			canvas.drawText(mIndex.getLabel(i), x, getPaddingTop() + i * slot + baseline,
+					i == mSelected ? mSelectedPaint : mPaint);
+		}
+	}
+	
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		int count = mIndex.getSectionCount();
+		if (count == 0) return false;
+		switch (event.getActionMasked()) {
+			case MotionEvent.ACTION_DOWN:
+			case MotionEvent.ACTION_MOVE:
+				float slot = (float) (getHeight() - getPaddingTop() - getPaddingBottom()) / count;
+				int section = Math.max(0, Math.min(count - 1, (int) ((event.getY() - getPaddingTop()) / slot)));
+				if (section != mSelected) {
+					mSelected = section;
+					invalidate();
+					if (mListener != null) mListener.onSectionSelected(mIndex, section);
+				}
+				return true;
+			case MotionEvent.ACTION_UP:
+				performClick();
+				// fall through
+			case MotionEvent.ACTION_CANCEL:
+				mSelected = -1;
+				invalidate();
+				return true;
+			default:
+				return super.onTouchEvent(event);
+		}
+	}
+	
+	@Override
+	public boolean performClick() {
+		return super.performClick();
+	}
+}
@@ -0,0 +1,25 @@
+package com.example.roomwordsample;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/* How many words start with each character of their sort key, kept up to date by triggers
+on word_table (see WordSectionIndex). section is the first character of the sort key, or ""
+for an empty one. Rows that drop to zero stay and are filtered out when read.*/
+@Entity(tableName = "word_section_count")
+public class WordSectionCount {
+	@PrimaryKey
+	@NonNull
+	@ColumnInfo(name = "section")
+	private String mSection;
+	@ColumnInfo(name = "count")
+	private int mCount;
+	public WordSectionCount(@NonNull String section, int count) {
+		this.mSection = section;
+		this.mCount = count;
+	}
+	public String getSection() {return this.mSection;}
+	public int getCount() {return this.mCount;}
+}
@@ -0,0 +1,94 @@
+package com.example.roomwordsample;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/* Where each section (the first character of the sort key) starts in the alphabetized list,
+   built from word_section_count in O(sections) without reading any words.
+   The counts are kept by triggers on word_table, so every write path (batches, imports,
+   purges, seeding, the sort_key backfill) updates them in the same transaction as the rows.
+   With the start key of a section, the pager jumps there with one keyset seek (see
+   WordPager.jumpTo), whatever lies in between.*/
+final class WordSectionIndex {
+	
+	static final WordSectionIndex EMPTY = new WordSectionIndex(new String[0], new int[]{0});
+	
+	private static final String SECTION = "substr(%s.sort_key, 1, 1)";
+	
+	static final String[] TRIGGERS = {
+			"CREATE TRIGGER IF NOT EXISTS word_section_count_insert AFTER INSERT ON word_table BEGIN "
+					+ increment("NEW") + " END",
+			"CREATE TRIGGER IF NOT EXISTS word_section_count_delete AFTER DELETE ON word_table BEGIN "
+					+ decrement("OLD") + " END",
+			"CREATE TRIGGER IF NOT EXISTS word_section_count_update AFTER UPDATE OF sort_key ON word_table BEGIN "
+					+ decrement("OLD") + " " + increment("NEW") + " END",
+	};
+	
+	/*Installs the triggers on every open, so created, migrated and copied databases all have
+	them. The counts they start from come from the table's creation (empty) or MIGRATION_4_5.*/
+	static final RoomDatabase.Callback TRIGGER_CALLBACK = new RoomDatabase.Callback() {
+		@Override
+		public void onOpen(@NonNull SupportSQLiteDatabase db) {
+			super.onOpen(db);
+			for (String trigger : TRIGGERS) db.execSQL(trigger);
+		}
+	};
+	
+	// No UPSERT before SQLite 3.24 (API 30), so the row is made sure of first.
+	private static String increment(String row) {
+		String section = String.format(Locale.US, SECTION, row);
+		return "INSERT OR IGNORE INTO word_section_count(section, count) VALUES (" + section + ", 0); "
+				+ "UPDATE word_section_count SET count = count + 1 WHERE section = " + section + ";";
+	}
+	
+	private static String decrement(String row) {
+		return "UPDATE word_section_count SET count = count - 1 WHERE section = "
+				+ String.format(Locale.US, SECTION, row) + ";";
+	}
+	
+	private final String[] mSections;
+	private final int[] mStarts; // mStarts[i]: position of section i; the last entry is the total
+	
+	private WordSectionIndex(String[] sections, int[] starts) {
+		mSections = sections;
+		mStarts = starts;
+	}
+	
+	/*counts must be in list order, as WordDao.loadSectionCounts() returns them.*/
+	static WordSectionIndex of(List<WordSectionCount> counts) {
+		if (counts == null || counts.isEmpty()) return EMPTY;
+		String[] sections = new String[counts.size()];
+		int[] starts = new int[counts.size() + 1];
+		for (int i = 0; i < sections.length; i++) {
+			sections[i] = counts.get(i).getSection();
+			starts[i + 1] = starts[i] + counts.get(i).getCount();
+		}
+		return new WordSectionIndex(sections, starts);
+	}
+	
+	int getSectionCount() {return mSections.length;}
+	
+	int getTotal() {return mStarts[mSections.length];}
+	
+	/*The sort key the section's first word starts with, for WordPager.jumpTo().*/
+	String getStartKey(int section) {return mSections[section];}
+	
+	/*What a fast-scroller shows for the section.*/
+	String getLabel(int section) {
+		String key = mSections[section];
+		return key.isEmpty() ? "#" : key.toUpperCase(Locale.ROOT);
+	}
+	
+	int getPositionForSection(int section) {return mStarts[section];}
+	
+	int getSectionForPosition(int position) {
+		int found = Arrays.binarySearch(mStarts, 0, mSections.length, position);
+		// Not a start: the insertion point is the next section, so step back one.
+		return found >= 0 ? found : Math.max(0, -found - 2);
+	}
+}
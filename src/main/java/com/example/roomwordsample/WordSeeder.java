@@ -0,0 +1,240 @@
+package com.example.roomwordsample;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/* Fills the database with its starting words.
+   Seeding runs when the database is created and again only when SEED_VERSION is bumped;
+   a normal open leaves the table alone, so words survive app restarts. Seeding only adds
+   words (duplicates are ignored), it never deletes what the user entered.
+   The words come from the asset seed/words.txt (one per line) when the app ships one,
+   otherwise from DEFAULT_WORDS, and are inserted in a single transaction.
+   The list seeded last is kept in a file. A bump only adds the words that list didn't have:
+   the others were seeded before, so if they are missing now the user deleted them. An install
+   seeded before that file existed has no record, so its first bump adds nothing and starts one.
+
+   With sharding on, one seeder is added to every shard. The first shard created or opened
+   with an old seed version seeds them all once, through ShardedWordDao, which puts each word
+   in its own shard. There is no transaction across shards, so a failed seed is simply
+   retried on the next start; the words already in are ignored then.
+
+   For very large datasets ship a prepackaged database instead: getDatabase() opens it with
+   Room's createFromAsset(), which copies the file once on first open. A database copied that
+   way holds the dictionary as shipped and is never seeded (see getPrepackagedCallback()).
+   Shards are always seeded from the word list.*/
+class WordSeeder extends RoomDatabase.Callback {
+	
+	private static final String TAG = "WordSeeder";
+	
+	// Bump to push a new seed list to existing installs.
+	static final int SEED_VERSION = 1;
+	static final String SEED_ASSET = "seed/words.txt";
+	static final String PREPACKAGED_DATABASE_ASSET = "databases/word_database.db";
+	static final List<String> DEFAULT_WORDS = Arrays.asList("Hello", "there", "this", "is", "me");
+	
+	private static final String PREFS = "word_seed";
+	private static final String KEY_SEED_VERSION = "seed_version";
+	private static final String KEY_SHARDED_SEED_VERSION = "seed_version_sharded";
+	private static final String FROM_ASSET_SUFFIX = "_from_asset";
+	private static final String RECORD_SUFFIX = ".seeded";
+	private static final int CHUNK_SIZE = 5000;
+	
+	/*Where the words go.*/
+	interface Target {
+		WordDao wordDao();
+		/*All of body in one transaction where the target can do that.*/
+		void runInTransaction(Runnable body);
+	}
+	
+	private final Context mContext;
+	private final String mVersionKey;
+	private final Target mTarget;
+	private volatile boolean mCreated;
+	private volatile boolean mFromAsset;
+	private final AtomicBoolean mSeedQueued = new AtomicBoolean();
+	
+	private final RoomDatabase.PrepackagedDatabaseCallback mPrepackagedCallback =
+			new RoomDatabase.PrepackagedDatabaseCallback() {
+				@Override
+				public void onOpenPrepackagedDatabase(@NonNull SupportSQLiteDatabase db) {
+					mFromAsset = true;
+					prefs().edit().putBoolean(mVersionKey + FROM_ASSET_SUFFIX, true).apply();
+				}
+			};
+	
+	/*For the single database file.*/
+	WordSeeder(final Context context) {
+		this(context, KEY_SEED_VERSION, new Target() {
+			// Resolved when the seed runs, after getDatabase() has set the instance.
+			@Override
+			public WordDao wordDao() {
+				return WordRoomDatabase.getDatabase(context).instrumentedWordDao();
+			}
+			
+			@Override
+			public void runInTransaction(Runnable body) {
+				WordRoomDatabase.getDatabase(context).runInTransaction(body);
+			}
+		});
+	}
+	
+	/*For the shards, shared by all of them.*/
+	static WordSeeder forShards(final Context context) {
+		return new WordSeeder(context, KEY_SHARDED_SEED_VERSION, new Target() {
+			@Override
+			public WordDao wordDao() {
+				return WordRoomDatabase.getShards(context).wordDao();
+			}
+			
+			@Override
+			public void runInTransaction(Runnable body) {
+				body.run();
+			}
+		});
+	}
+	
+	private WordSeeder(Context context, String versionKey, Target target) {
+		mContext = context.getApplicationContext();
+		mVersionKey = versionKey;
+		mTarget = target;
+	}
+	
+	@Override
+	public void onCreate(@NonNull SupportSQLiteDatabase db) {
+		super.onCreate(db);
+		// A new database file always needs seeding, whatever the preferences say.
+		mCreated = true;
+	}
+	
+	/*For createFromAsset(): called when Room copies the prepackaged file, before onOpen.*/
+	RoomDatabase.PrepackagedDatabaseCallback getPrepackagedCallback() {
+		return mPrepackagedCallback;
+	}
+	
+	@Override
+	public void onOpen(@NonNull SupportSQLiteDatabase db) {
+		super.onOpen(db);
+		if (mFromAsset || prefs().getBoolean(mVersionKey + FROM_ASSET_SUFFIX, false)) return;
+		final boolean created = mCreated;
+		if (!created && seededVersion() >= SEED_VERSION) return;
+		mCreated = false;
+		// Once per process, however many shards open. Not on a shard's own writer: the
+		// sharded DAO waits on those.
+		if (mSeedQueued.compareAndSet(false, true)) {
+			WordRoomDatabase.databaseWriteExecutor.execute(() -> seed(created));
+		}
+	}
+	
+	private int seededVersion() {
+		return prefs().getInt(mVersionKey, 0);
+	}
+	
+	private SharedPreferences prefs() {
+		return mContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+	}
+	
+	/*The words the last seed put in, one per line.*/
+	private File recordFile() {
+		return new File(mContext.getFilesDir(), mVersionKey + RECORD_SUFFIX);
+	}
+	
+	/*Runs on the write executor. created: the table is new, so everything goes in.*/
+	private void seed(boolean created) {
+		WordDao dao = mTarget.wordDao();
+		File record = recordFile();
+		File next = new File(record.getPath() + ".new");
+		try {
+			// Null when there is no record of an earlier seed: then nothing is added this time.
+			final Set<String> seededBefore = created ? Collections.<String>emptySet() : readRecord(record);
+			mTarget.runInTransaction(() -> {
+				try (Writer out = new OutputStreamWriter(new FileOutputStream(next), StandardCharsets.UTF_8)) {
+					try (InputStream in = mContext.getAssets().open(SEED_ASSET)) {
+						insertLines(dao, new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)),
+								seededBefore, out);
+					} catch (FileNotFoundException e) {
+						insertLines(dao, new BufferedReader(new StringReader(lines(DEFAULT_WORDS))), seededBefore, out);
+					}
+				} catch (IOException e) {
+					throw new RuntimeException(e); // rolls the transaction back
+				}
+			});
+			if (!next.renameTo(record)) Log.w(TAG, "Could not keep the seeded word list in " + record);
+			prefs().edit().putInt(mVersionKey, SEED_VERSION).apply();
+		} catch (IOException | RuntimeException e) {
+			// Not recorded, so the next open tries again.
+			Log.e(TAG, "Seeding failed", e);
+		}
+	}
+	
+	private static Set<String> readRecord(File record) throws IOException {
+		if (!record.exists()) return null;
+		HashSet<String> words = new HashSet<>();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(record), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) words.add(line);
+		}
+		return words;
+	}
+	
+	/*Inserts the words not in seededBefore (none if it is null) and writes all of them to record.*/
+	private static void insertLines(WordDao dao, BufferedReader reader, Set<String> seededBefore, Writer record)
+			throws IOException {
+		ArrayList<Word> chunk = new ArrayList<>(CHUNK_SIZE);
+		String line;
+		while ((line = reader.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty()) continue;
+			record.write(line);
+			record.write('\n');
+			if (seededBefore == null || seededBefore.contains(line)) continue;
+			chunk.add(new Word(line));
+			if (chunk.size() == CHUNK_SIZE) {
+				dao.insertAll(chunk);
+				chunk.clear();
+			}
+		}
+		if (!chunk.isEmpty()) dao.insertAll(chunk);
+	}
+	
+	private static String lines(List<String> words) {
+		StringBuilder text = new StringBuilder();
+		for (String word : words) text.append(word).append('\n');
+		return text.toString();
+	}
+	
+	/*True if the app ships a prepackaged database for createFromAsset().*/
+	static boolean hasPrepackagedDatabase(Context context) {
+		try {
+			String[] files = context.getAssets().list("databases");
+			return files != null && Arrays.asList(files).contains("word_database.db");
+		} catch (IOException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package com.example.roomwordsample;
+
+import android.content.Context;
+
+import androidx.room.InvalidationTracker;
+
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/* Sharding mode: words are partitioned across N database files, each a WordRoomDatabase of
+   its own with its own single writer thread, so batches touching several shards commit in
+   parallel and no one file has to hold the whole dataset.
+
+   The shards are reached through one WordDao (ShardedWordDao) that splits writes by shard
+   and answers ordered reads by querying every shard in parallel and merging the sorted
+   results, so the repository's pager, cache and write batcher work on it unchanged.
+
+   The shard count and partitioner decide where every existing word lives, so they must not
+   change once a device has data. The change feed works per database file and isn't
+   available in this mode. The shards are seeded and warmed up like the single file (see
+   WordSeeder.forShards and WordDatabaseWarmUp); the single file isn't opened at all.*/
+final class WordShards {
+	
+	enum Partitioner {
+		/*Contiguous letter ranges: shard i holds words starting with its slice of a-z,
+		anything else goes to the first shard. Keeps a letter's words together.*/
+		BY_FIRST_LETTER {
+			@Override
+			int shardOf(Word word, int shards) {
+				String key = word.getSortKey();
+				char first = key.isEmpty() ? 0 : key.charAt(0);
+				return first >= 'a' && first <= 'z' ? (first - 'a') * shards / 26 : 0;
+			}
+		},
+		/*Spreads words evenly whatever their letters.*/
+		BY_HASH {
+			@Override
+			int shardOf(Word word, int shards) {
+				return (word.getWord().hashCode() & 0x7fffffff) % shards;
+			}
+		};
+		
+		abstract int shardOf(Word word, int shards);
+	}
+	
+	private final WordRoomDatabase[] mDatabases;
+	private final InstrumentedExecutor[] mWriteExecutors;
+	private final Partitioner mPartitioner;
+	private final WordDao mInstrumentedWordDao;
+	
+	// Runs the per-shard reads of a fan-out. Separate from the reader pool, whose threads
+	// are the ones waiting on these.
+	private final ExecutorService mFanOutExecutor;
+	
+	WordShards(Context context, int count, Partitioner partitioner) {
+		if (count < 2) throw new IllegalArgumentException("Sharding needs at least 2 shards");
+		mPartitioner = partitioner;
+		mDatabases = new WordRoomDatabase[count];
+		mWriteExecutors = new InstrumentedExecutor[count];
+		WordSeeder seeder = WordSeeder.forShards(context);
+		for (int i = 0; i < count; i++) {
+			mWriteExecutors[i] = new InstrumentedExecutor("word-db-writer-" + i, 1);
+			mDatabases[i] = WordRoomDatabase.buildShard(context, "word_database_shard_" + i, mWriteExecutors[i], seeder);
+		}
+		mFanOutExecutor = Executors.newFixedThreadPool(2 * count, runnable -> {
+			Thread thread = new Thread(runnable, "word-db-fan-out");
+			thread.setDaemon(true);
+			return thread;
+		});
+		mInstrumentedWordDao = WordDbMetrics.wrap(new ShardedWordDao(this));
+	}
+	
+	int count() {return mDatabases.length;}
+	
+	int shardOf(Word word) {
+		return mPartitioner.shardOf(word, mDatabases.length);
+	}
+	
+	WordRoomDatabase database(int shard) {return mDatabases[shard];}
+	
+	InstrumentedExecutor writeExecutor(int shard) {return mWriteExecutors[shard];}
+	
+	ExecutorService fanOutExecutor() {return mFanOutExecutor;}
+	
+	/*Like WordRoomDatabase.areSortKeysReady(), for every shard.*/
+	boolean areSortKeysReady() {
+		for (WordRoomDatabase db : mDatabases) if (!db.areSortKeysReady()) return false;
+		return true;
+	}
+	
+	/*The DAO over all shards, timed by WordDbMetrics like the single-file one.*/
+	WordDao wordDao() {return mInstrumentedWordDao;}
+	
+	private volatile WordDuplicateFilter mDuplicateFilter;
+	
+	/*One duplicate filter over all shards, like WordRoomDatabase.getDuplicateFilter().*/
+	WordDuplicateFilter getDuplicateFilter() {
+		if (mDuplicateFilter == null) {
+			synchronized (this) {
+				if (mDuplicateFilter == null) {
+					mDuplicateFilter = new WordDuplicateFilter(mInstrumentedWordDao, WordRoomDatabase.databaseReadExecutor,
+							WordRoomDatabase.databaseWriteExecutor);
+					mDuplicateFilter.start();
+				}
+			}
+		}
+		return mDuplicateFilter;
+	}
+	
+	InvalidationTracker[] invalidationTrackers() {
+		InvalidationTracker[] trackers = new InvalidationTracker[mDatabases.length];
+		for (int i = 0; i < trackers.length; i++) trackers[i] = mDatabases[i].getInvalidationTracker();
+		return trackers;
+	}
+	
+	String getExecutorStats() {
+		StringBuilder out = new StringBuilder(String.format(Locale.US, "%d shards, %s", count(), mPartitioner));
+		for (InstrumentedExecutor executor : mWriteExecutors) out.append('\n').append(executor.getStats());
+		return out.toString();
+	}
+}
@@ -0,0 +1,55 @@
+package com.example.roomwordsample;
+
+import java.text.Normalizer;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/* The sort_key stored with every word: the word with compatibility forms folded, accents
+   stripped and case lowered, so "Éclair", "eclair" and "ECLAIR" sort together. It is computed
+   once, when the Word is created, and indexed with the word, so the list is ordered by
+   (sort_key, word) straight from the index with no collation work per query.
+   The word breaks ties, which keeps the order total and the keyset queries exact.*/
+final class WordSortKey {
+	
+	private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+	
+	/*The list order, the same one SQLite gives ORDER BY sort_key, word.*/
+	static final Comparator<Word> ORDER = (a, b) -> compare(a.getSortKey(), a.getWord(), b.getSortKey(), b.getWord());
+	
+	private WordSortKey() {}
+	
+	static String of(String word) {
+		if (isAscii(word)) return word.toLowerCase(Locale.ROOT);
+		String folded = Normalizer.normalize(word, Normalizer.Form.NFKD);
+		return MARKS.matcher(folded).replaceAll("").toLowerCase(Locale.ROOT);
+	}
+	
+	static int compare(String sortKeyA, String wordA, String sortKeyB, String wordB) {
+		int order = compareBinary(sortKeyA, sortKeyB);
+		return order != 0 ? order : compareBinary(wordA, wordB);
+	}
+	
+	/*SQLite compares TEXT as UTF-8 bytes, which is code point order. String.compareTo is
+	UTF-16 order, which differs once surrogate pairs are involved, so they are moved above
+	the rest of the BMP before comparing.*/
+	static int compareBinary(String a, String b) {
+		int length = Math.min(a.length(), b.length());
+		for (int i = 0; i < length; i++) {
+			char ca = a.charAt(i);
+			char cb = b.charAt(i);
+			if (ca == cb) continue;
+			if (ca >= 0xd800 && cb >= 0xd800) {
+				ca += ca >= 0xe000 ? -0x800 : 0x2000;
+				cb += cb >= 0xe000 ? -0x800 : 0x2000;
+			}
+			return ca - cb;
+		}
+		return a.length() - b.length();
+	}
+	
+	private static boolean isAscii(String word) {
+		for (int i = 0; i < word.length(); i++) if (word.charAt(i) >= 0x80) return false;
+		return true;
+	}
+}
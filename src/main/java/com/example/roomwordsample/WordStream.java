@@ -0,0 +1,196 @@
+package com.example.roomwordsample;
+
+import androidx.lifecycle.LiveData;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/* A hot stream of values from the repository for consumers that don't live on the main
+   thread: exporters, sync jobs, anything that wants every update rather than the latest one
+   LiveData happens to deliver.
+
+   Each subscription delivers on its own scheduler (any Executor), one value at a time and in
+   order. A value that arrives while the subscriber is still busy with an earlier one is
+   handled by the subscription's Backpressure:
+     LATEST keeps only the newest pending value, like LiveData does;
+     BUFFER queues up to bufferCapacity values and fails the subscription past that;
+     DROP ignores values until the subscriber is idle again.
+   The stream's source runs only while there is at least one subscriber.*/
+final class WordStream<T> {
+	
+	enum Backpressure {LATEST, BUFFER, DROP}
+	
+	static final int DEFAULT_BUFFER_CAPACITY = 128;
+	
+	interface Subscriber<T> {
+		void onNext(T value);
+		/*The subscription is cancelled after this. The default just rethrows.*/
+		default void onError(Exception e) {throw new RuntimeException(e);}
+	}
+	
+	/*Feeds a stream. start() is called for the first subscriber, stop() after the last one
+	leaves, so an idle stream costs nothing. Both run under the stream's lock, together with
+	the subscriber change that caused them, so they always alternate and the source runs
+	exactly while someone is subscribed. Keep them quick, and don't subscribe or cancel from
+	them; publishing from start() is fine.*/
+	interface Source<T> {
+		void start(WordStream<T> stream);
+		void stop();
+	}
+	
+	/*Thrown to onError when a BUFFER subscription falls more than its capacity behind.*/
+	static final class BufferOverflowException extends Exception {
+		BufferOverflowException(int capacity) {
+			super("Subscriber fell more than " + capacity + " values behind");
+		}
+	}
+	
+	private final Source<T> mSource;
+	private final CopyOnWriteArrayList<Subscription> mSubscriptions = new CopyOnWriteArrayList<>();
+	
+	WordStream(Source<T> source) {
+		mSource = source;
+	}
+	
+	Subscription subscribe(Subscriber<? super T> subscriber, Executor scheduler, Backpressure backpressure) {
+		return subscribe(subscriber, scheduler, backpressure, DEFAULT_BUFFER_CAPACITY);
+	}
+	
+	Subscription subscribe(Subscriber<? super T> subscriber, Executor scheduler, Backpressure backpressure,
+			int bufferCapacity) {
+		Subscription subscription = new Subscription(subscriber, scheduler, backpressure, bufferCapacity);
+		synchronized (this) {
+			boolean first = mSubscriptions.isEmpty();
+			mSubscriptions.add(subscription);
+			if (first && mSource != null) mSource.start(this);
+		}
+		return subscription;
+	}
+	
+	/*Called by the source, on any thread.*/
+	void publish(T value) {
+		for (Subscription subscription : mSubscriptions) subscription.offer(value);
+	}
+	
+	/*Bridges to LiveData for the UI: subscribed while the LiveData is active, delivering with
+	postValue, which keeps only the latest value just like LATEST.*/
+	LiveData<T> toLiveData() {
+		return new LiveData<T>() {
+			private Subscription mSubscription;
+			
+			@Override
+			protected void onActive() {
+				mSubscription = subscribe(this::postValue, Runnable::run, Backpressure.LATEST);
+			}
+			
+			@Override
+			protected void onInactive() {
+				mSubscription.cancel();
+				mSubscription = null;
+			}
+		};
+	}
+	
+	private void remove(Subscription subscription) {
+		synchronized (this) {
+			boolean last = mSubscriptions.remove(subscription) && mSubscriptions.isEmpty();
+			if (last && mSource != null) mSource.stop();
+		}
+	}
+	
+	final class Subscription {
+		private final Subscriber<? super T> mSubscriber;
+		private final Executor mScheduler;
+		private final Backpressure mBackpressure;
+		private final int mBufferCapacity;
+		
+		private final ArrayDeque<T> mPending = new ArrayDeque<>(); // guarded by this
+		private boolean mScheduled;                                // guarded by this
+		private long mDropped;                                     // guarded by this
+		private volatile boolean mCancelled;
+		
+		private Subscription(Subscriber<? super T> subscriber, Executor scheduler, Backpressure backpressure,
+				int bufferCapacity) {
+			mSubscriber = subscriber;
+			mScheduler = scheduler;
+			mBackpressure = backpressure;
+			mBufferCapacity = Math.max(1, bufferCapacity);
+		}
+		
+		void cancel() {
+			mCancelled = true;
+			synchronized (this) {
+				mPending.clear();
+			}
+			remove(this);
+		}
+		
+		boolean isCancelled() {return mCancelled;}
+		
+		/*Values discarded by LATEST or DROP so far.*/
+		synchronized long getDroppedCount() {return mDropped;}
+		
+		private void offer(T value) {
+			Exception overflow = null;
+			synchronized (this) {
+				if (mCancelled) return;
+				switch (mBackpressure) {
+					case LATEST:
+						mDropped += mPending.size();
+						mPending.clear();
+						mPending.add(value);
+						break;
+					case DROP:
+						// mScheduled covers both a queued delivery and an onNext in progress.
+						if (mScheduled) {
+							mDropped++;
+							return;
+						}
+						mPending.add(value);
+						break;
+					case BUFFER:
+						if (mPending.size() >= mBufferCapacity) {
+							overflow = new BufferOverflowException(mBufferCapacity);
+						} else {
+							mPending.add(value);
+						}
+						break;
+				}
+				if (overflow == null) {
+					if (mScheduled) return;
+					mScheduled = true;
+				}
+			}
+			if (overflow != null) {
+				fail(overflow);
+			} else {
+				mScheduler.execute(this::drain);
+			}
+		}
+		
+		private void drain() {
+			while (true) {
+				T value;
+				synchronized (this) {
+					value = mCancelled ? null : mPending.poll();
+					if (value == null) {
+						mScheduled = false;
+						return;
+					}
+				}
+				try {
+					mSubscriber.onNext(value);
+				} catch (RuntimeException e) {
+					fail(e);
+					return;
+				}
+			}
+		}
+		
+		private void fail(final Exception e) {
+			cancel();
+			mScheduler.execute(() -> mSubscriber.onError(e));
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.example.roomwordsample;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+
+import androidx.core.text.PrecomputedTextCompat;
+
+import java.nio.CharBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/* Measures the text of rows that are about to scroll into view on a background thread, so
+   binding them only hands the TextView a finished layout. WordListAdapter asks for the rows
+   just past the visible range in the scroll direction; what was computed is handed out once
+   by take() and everything is dropped when the list is replaced.
+   Only CompactWordList rows are precomputed: a cursor can't be read off the main thread.*/
+final class WordTextPrecomputer {
+	
+	static final int DEFAULT_AHEAD = 30;
+	static final int MAX_CACHED = 4 * DEFAULT_AHEAD;
+	
+	private static final Executor sExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "word-text-precompute");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	});
+	
+	private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+	
+	// All of these are only touched on the main thread.
+	private PrecomputedTextCompat.Params mParams;
+	private CompactWordList mWords = CompactWordList.EMPTY;
+	private final SparseArray<PrecomputedTextCompat> mReady = new SparseArray<>();
+	private final SparseArray<Boolean> mRequested = new SparseArray<>();
+	
+	/*The TextView settings the text is measured for, taken from the first view holder.*/
+	void setParams(PrecomputedTextCompat.Params params) {
+		if (params.equals(mParams)) return;
+		mParams = params;
+		clear();
+	}
+	
+	void setWords(CompactWordList words) {
+		if (words == mWords) return;
+		mWords = words;
+		clear();
+	}
+	
+	/*Queues rows from..to (inclusive, clipped to the list) that aren't computed or queued yet.*/
+	void prefetch(int from, int to) {
+		final PrecomputedTextCompat.Params params = mParams;
+		final CompactWordList words = mWords;
+		if (params == null) return;
+		int maxCached = Math.min(MAX_CACHED, WordMemoryGovernor.get().getBudget().precomputedRows);
+		from = Math.max(0, from);
+		to = Math.min(words.size() - 1, to);
+		for (int position = from; position <= to; position++) {
+			if (mReady.get(position) != null || mRequested.get(position) != null) continue;
+			if (mReady.size() + mRequested.size() >= maxCached) return;
+			mRequested.put(position, Boolean.TRUE);
+			final int row = position;
+			final CharSequence text = CharBuffer.wrap(words.chars(), words.start(row), words.length(row));
+			sExecutor.execute(() -> {
+				final PrecomputedTextCompat computed = PrecomputedTextCompat.create(text, params);
+				mMainHandler.post(() -> {
+					// The list or the params may have changed while this was running.
+					if (words != mWords || params != mParams) return;
+					mRequested.remove(row);
+					mReady.put(row, computed);
+				});
+			});
+		}
+	}
+	
+	/*The precomputed text for position, or null. Each result is handed out once.*/
+	PrecomputedTextCompat take(int position) {
+		PrecomputedTextCompat computed = mReady.get(position);
+		if (computed != null) mReady.remove(position);
+		return computed;
+	}
+	
+	/*Drops the computed rows if there are more than budget allows; they are measured again
+	on the next scroll if still ahead. Rows being measured right now are left to finish.*/
+	void trim(WordMemoryGovernor.Budget budget) {
+		if (mReady.size() <= budget.precomputedRows) return;
+		WordMemoryGovernor.get().onEvicted("precomputed", mReady.size());
+		mReady.clear();
+	}
+	
+	private void clear() {
+		mReady.clear();
+		mRequested.clear();
+	}
+}
@@ -0,0 +1,240 @@
+package com.example.roomwordsample;
+
+import android.database.Cursor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/* Streams the word list to and from flat files.
+   Files are UTF-8, either one word per line or each word prefixed with its byte length
+   as a 4-byte big-endian int. Both directions go through a fixed-size NIO buffer, so memory
+   stays flat no matter how large the file is.
+   Import commits CHUNK_SIZE words per transaction on the write executor, parsing the next
+   chunk while the previous one commits. Export writes the words in list order, reading them
+   straight from a cursor per keyset chunk of CHUNK_SIZE rows, so no Word is created and no
+   chunk is kept; it goes through the DAO, so it works on a sharded table too.*/
+class WordTransfer {
+	
+	enum Format {LINES, LENGTH_PREFIXED}
+	
+	/*Callbacks run on the transfer thread.*/
+	interface Listener {
+		/*totalBytes is -1 when the size isn't known up front (export).*/
+		void onProgress(long words, long bytes, long totalBytes);
+		void onComplete(long words);
+		/*Also called with a CancellationException after cancel().*/
+		void onError(Exception e);
+	}
+	
+	/*Handle to a running import or export.*/
+	static final class Task {
+		private final AtomicBoolean mCancelled = new AtomicBoolean();
+		private Future<?> mFuture;
+		
+		/*Stops after the chunk in progress. Chunks already committed stay in the table.*/
+		void cancel() {mCancelled.set(true);}
+		boolean isCancelled() {return mCancelled.get();}
+		boolean isDone() {return mFuture != null && mFuture.isDone();}
+		
+		private void checkCancelled() {
+			if (mCancelled.get()) throw new CancellationException();
+		}
+	}
+	
+	static final int CHUNK_SIZE = 5000;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_WORD_BYTES = BUFFER_SIZE;
+	
+	// One transfer at a time; a second one queues behind the first.
+	private static final ExecutorService sTransferExecutor =
+			Executors.newSingleThreadExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "word-transfer");
+				thread.setDaemon(true);
+				return thread;
+			});
+	
+	private final WordDao mWordDao;
+	private final ExecutorService mWriteExecutor;
+	
+	WordTransfer(WordDao dao, ExecutorService writeExecutor) {
+		mWordDao = dao;
+		mWriteExecutor = writeExecutor;
+	}
+	
+	Task importFrom(final File file, final Format format, final Listener listener) {
+		final Task task = new Task();
+		task.mFuture = sTransferExecutor.submit(() -> {
+			try {
+				listener.onComplete(runImport(file, format, listener, task));
+			} catch (Exception e) {
+				listener.onError(e);
+			}
+		});
+		return task;
+	}
+	
+	Task exportTo(final File file, final Format format, final Listener listener) {
+		final Task task = new Task();
+		task.mFuture = sTransferExecutor.submit(() -> {
+			try {
+				listener.onComplete(runExport(file, format, listener, task));
+			} catch (Exception e) {
+				listener.onError(e);
+			}
+		});
+		return task;
+	}
+	
+	/* ---- import ---- */
+	
+	private long runImport(File file, Format format, Listener listener, Task task)
+			throws IOException, InterruptedException, ExecutionException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+			 FileChannel channel = raf.getChannel()) {
+			long totalBytes = channel.size();
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			byte[] word = new byte[MAX_WORD_BYTES];
+			ArrayList<Word> chunk = new ArrayList<>(CHUNK_SIZE);
+			Future<?> inFlight = null;
+			long words = 0;
+			
+			buffer.flip(); // start empty
+			while (true) {
+				task.checkCancelled();
+				int length = format == Format.LINES ? readLine(channel, buffer, word)
+						: readLengthPrefixed(channel, buffer, word);
+				if (length < 0) break;
+				if (length == 0) continue;
+				chunk.add(new Word(new String(word, 0, length, StandardCharsets.UTF_8)));
+				if (chunk.size() == CHUNK_SIZE) {
+					inFlight = commit(chunk, inFlight);
+					words += chunk.size();
+					chunk = new ArrayList<>(CHUNK_SIZE);
+					listener.onProgress(words, channel.position() - buffer.remaining(), totalBytes);
+				}
+			}
+			if (!chunk.isEmpty()) {
+				inFlight = commit(chunk, inFlight);
+				words += chunk.size();
+			}
+			if (inFlight != null) inFlight.get();
+			listener.onProgress(words, totalBytes, totalBytes);
+			return words;
+		}
+	}
+	
+	/*Waits for the previous chunk, then queues this one, so at most one chunk is parsed
+	while one is being committed.*/
+	private Future<?> commit(final List<Word> chunk, Future<?> previous)
+			throws InterruptedException, ExecutionException {
+		if (previous != null) previous.get();
+		return mWriteExecutor.submit(() -> {mWordDao.insertAll(chunk);});
+	}
+	
+	/*Reads the next '\n'-terminated line into word, dropping a trailing '\r'.
+	Returns its length in bytes, or -1 at end of file.*/
+	private static int readLine(FileChannel channel, ByteBuffer buffer, byte[] word) throws IOException {
+		int length = 0;
+		while (true) {
+			if (!buffer.hasRemaining() && !fill(channel, buffer)) {
+				return length > 0 ? trimCr(word, length) : -1;
+			}
+			byte b = buffer.get();
+			if (b == '\n') return trimCr(word, length);
+			if (length == word.length) throw new IOException("Word longer than " + word.length + " bytes");
+			word[length++] = b;
+		}
+	}
+	
+	private static int trimCr(byte[] word, int length) {
+		return length > 0 && word[length - 1] == '\r' ? length - 1 : length;
+	}
+	
+	private static int readLengthPrefixed(FileChannel channel, ByteBuffer buffer, byte[] word)
+			throws IOException {
+		if (!ensure(channel, buffer, 4)) {
+			if (buffer.hasRemaining()) throw new IOException("Truncated length prefix");
+			return -1;
+		}
+		int length = buffer.getInt();
+		if (length < 0 || length > word.length) throw new IOException("Bad word length " + length);
+		if (!ensure(channel, buffer, length)) throw new IOException("Truncated word");
+		buffer.get(word, 0, length);
+		return length;
+	}
+	
+	/*Makes sure at least count bytes are buffered, compacting and reading as needed.*/
+	private static boolean ensure(FileChannel channel, ByteBuffer buffer, int count) throws IOException {
+		while (buffer.remaining() < count) {
+			if (!fill(channel, buffer)) return false;
+		}
+		return true;
+	}
+	
+	private static boolean fill(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.compact();
+		int read = channel.read(buffer);
+		buffer.flip();
+		return read > 0;
+	}
+	
+	/* ---- export ---- */
+	
+	private long runExport(File file, Format format, Listener listener, Task task) throws IOException {
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			 FileChannel channel = raf.getChannel()) {
+			channel.truncate(0);
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			long words = 0;
+			long bytes = 0;
+			String lastSortKey = "";
+			String lastWord = "";
+			
+			while (true) {
+				task.checkCancelled();
+				int rows = 0;
+				try (Cursor chunk = mWordDao.getWordCursorAfter(lastSortKey, lastWord, CHUNK_SIZE)) {
+					while (chunk.moveToNext()) {
+						byte[] encoded = chunk.getString(0).getBytes(StandardCharsets.UTF_8);
+						int needed = encoded.length + (format == Format.LINES ? 1 : 4);
+						if (needed > buffer.capacity()) throw new IOException("Word longer than buffer");
+						if (buffer.remaining() < needed) drain(channel, buffer);
+						if (format == Format.LENGTH_PREFIXED) buffer.putInt(encoded.length);
+						buffer.put(encoded);
+						if (format == Format.LINES) buffer.put((byte) '\n');
+						bytes += needed;
+						rows++;
+					}
+					if (chunk.moveToLast()) {
+						lastWord = chunk.getString(0);
+						lastSortKey = chunk.getString(1);
+					}
+				}
+				words += rows;
+				listener.onProgress(words, bytes, -1);
+				if (rows < CHUNK_SIZE) break;
+			}
+			drain(channel, buffer);
+			channel.force(false);
+			return words;
+		}
+	}
+	
+	private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	}
+}
@@ -5,18 +5,48 @@ import android.app.Application;
 import androidx.annotation.NonNull;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
 
 import java.util.List;
 
 public class WordViewModel extends AndroidViewModel {
 	private WordRepository mRepository;
 	private LiveData<List<Word>> mAllWords;
+	private final MutableLiveData<String> mSearchQuery = new MutableLiveData<>();
+	private LiveData<List<Word>> mSearchResults;
+	private LiveData<List<Word>> mCommittedWords;
 	public WordViewModel (Application application) {
 		super(application);
 		mRepository= new WordRepository(application);
 		mAllWords = mRepository.getAllWords();
+		// Each new query swaps the underlying Room LiveData; results for the old query stop.
+		mSearchResults = Transformations.switchMap(mSearchQuery, mRepository::searchWords);
+		mCommittedWords = mRepository.observeCommits().toLiveData();
 	}
 	
 	LiveData<List<Word>> getAllWords() {return mAllWords;}
+	LiveData<List<Word>> getWordWindow() {return mRepository.getWordWindow();}
+	LiveData<CompactWordList> getCompactWords() {return mRepository.getCompactWords();}
+	LiveData<WordCursorList> getCursorWords() {return mRepository.getCursorWords();}
+	LiveData<List<Word>> getSearchResults() {return mSearchResults;}
+	void setSearchQuery(String query) {mSearchQuery.setValue(query);}
+	void loadAfter() {mRepository.loadAfter();}
+	void loadBefore() {mRepository.loadBefore();}
+	LiveData<WordSectionIndex> getSectionIndex() {return mRepository.getSectionIndex();}
+	int jumpToSection(WordSectionIndex index, int section) {return mRepository.jumpToSection(index, section);}
+	LiveData<Integer> getJumps() {return mRepository.getJumps();}
 	public void insert(Word word) {mRepository.insert(word);}
+	
+	/*Streams for background consumers; see WordStream for schedulers and backpressure.*/
+	WordStream<List<Word>> getWordStream() {return mRepository.observeWords();}
+	WordStream<List<WordChange>> getChangeStream() {return mRepository.observeChanges();}
+	/*The same commits as LiveData, for the UI.*/
+	LiveData<List<Word>> getCommittedWords() {return mCommittedWords;}
+	
+	@Override
+	protected void onCleared() {
+		super.onCleared();
+		mRepository.close();
+	}
 }
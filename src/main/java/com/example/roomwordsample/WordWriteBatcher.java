@@ -0,0 +1,103 @@
+package com.example.roomwordsample;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/* Coalesces inserts into batched transactions.
+   Words that arrive within windowMillis of the first pending word, or until maxBatch words
+   are pending, are committed together with one WordDao.insertAll() call on the write
+   executor: one transaction, one fsync and one invalidation for the whole batch.*/
+class WordWriteBatcher {
+	
+	/*Notified on the writer thread around every batch commit.*/
+	interface Listener {
+		default void onBatchStarting(List<Word> batch) {}
+		/*rowIds are from WordDao.insertAll: -1 for words that were already in the table.*/
+		void onBatchCommitted(List<Word> batch, long[] rowIds);
+		/*The transaction failed and none of the batch was written.*/
+		default void onBatchFailed(List<Word> batch, RuntimeException e) {}
+	}
+	
+	private static final String TAG = "WordWriteBatcher";
+	
+	static final long DEFAULT_WINDOW_MILLIS = 20;
+	static final int DEFAULT_MAX_BATCH = 1000;
+	
+	// Only schedules flushes; the writes themselves always go to the write executor.
+	private static final ScheduledExecutorService sTimer =
+			Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "word-write-batcher");
+				thread.setDaemon(true);
+				return thread;
+			});
+	
+	private final WordDao mWordDao;
+	private final Executor mWriteExecutor;
+	private final long mWindowMillis;
+	private final int mMaxBatch;
+	private final Listener mListener;
+	
+	private final Object mLock = new Object();
+	private ArrayList<Word> mPending = new ArrayList<>(); // guarded by mLock
+	private ScheduledFuture<?> mScheduledFlush;          // guarded by mLock
+	
+	WordWriteBatcher(WordDao wordDao, Executor writeExecutor, long windowMillis, int maxBatch,
+			Listener listener) {
+		mWordDao = wordDao;
+		mWriteExecutor = writeExecutor;
+		mWindowMillis = windowMillis;
+		mMaxBatch = maxBatch;
+		mListener = listener;
+	}
+	
+	void add(Word word) {
+		synchronized (mLock) {
+			mPending.add(word);
+			onAddedLocked();
+		}
+	}
+	
+	/*Commits whatever is pending now instead of waiting for the window to close.*/
+	void flush() {
+		synchronized (mLock) {
+			flushLocked();
+		}
+	}
+	
+	private void onAddedLocked() {
+		if (mPending.size() >= mMaxBatch) {
+			flushLocked();
+		} else if (!mPending.isEmpty() && mScheduledFlush == null) {
+			mScheduledFlush = sTimer.schedule(this::flush, mWindowMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	private void flushLocked() {
+		if (mScheduledFlush != null) {
+			mScheduledFlush.cancel(false);
+			mScheduledFlush = null;
+		}
+		if (mPending.isEmpty()) return;
+		final List<Word> batch = mPending;
+		mPending = new ArrayList<>();
+		mWriteExecutor.execute(() -> {
+			mListener.onBatchStarting(batch);
+			long[] rowIds;
+			try {
+				rowIds = mWordDao.insertAll(batch);
+			} catch (RuntimeException e) {
+				Log.e(TAG, "Batch of " + batch.size() + " words failed", e);
+				mListener.onBatchFailed(batch, e);
+				return;
+			}
+			mListener.onBatchCommitted(batch, rowIds);
+		});
+	}
+}
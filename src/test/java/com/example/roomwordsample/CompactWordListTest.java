@@ -0,0 +1,108 @@
+package com.example.roomwordsample;
+
+import android.database.MatrixCursor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * CompactWordList: rows packed into one char array must read back exactly as they went in.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class CompactWordListTest {
+	
+	@Test
+	public void copyOfReadsBackEveryRow() {
+		List<Word> words = new ArrayList<>();
+		for (int i = 0; i < 100; i++) words.add(new Word("word-" + i + (i % 7 == 0 ? "-ünïcödé" : "")));
+		words.add(new Word(""));
+		CompactWordList list = CompactWordList.copyOf(words);
+		assertEquals(words.size(), list.size());
+		for (int i = 0; i < words.size(); i++) {
+			String expected = words.get(i).getWord();
+			assertEquals(expected, list.getString(i));
+			assertEquals(expected, list.get(i).getWord());
+			assertEquals(expected.length(), list.length(i));
+			assertEquals(expected, new String(list.chars(), list.start(i), list.length(i)));
+		}
+		assertSame(list, CompactWordList.copyOf(list));
+	}
+	
+	@Test
+	public void builderGrowsPastItsEstimate() {
+		// No estimate: 16 offsets and 64 chars to start with, so both arrays grow.
+		CompactWordList.Builder builder = new CompactWordList.Builder(0, 0);
+		List<String> words = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			String word = "word-" + i;
+			words.add(word);
+			if (i % 2 == 0) {
+				builder.append(word);
+			} else {
+				builder.append(word.toCharArray(), word.length());
+			}
+		}
+		CompactWordList list = builder.build();
+		assertEquals(words.size(), list.size());
+		for (int i = 0; i < words.size(); i++) assertEquals(words.get(i), list.getString(i));
+	}
+	
+	@Test
+	public void fromCursorCopiesColumnZero() {
+		MatrixCursor cursor = new MatrixCursor(new String[]{"word"});
+		for (String word : Arrays.asList("apple", "a-much-longer-word-than-the-sixty-four-char-buffer-holds-at-first", "")) {
+			cursor.addRow(new Object[]{word});
+		}
+		CompactWordList list = CompactWordList.fromCursor(cursor);
+		assertEquals(3, list.size());
+		assertEquals("apple", list.getString(0));
+		assertEquals("a-much-longer-word-than-the-sixty-four-char-buffer-holds-at-first", list.getString(1));
+		assertEquals("", list.getString(2));
+	}
+	
+	@Test
+	public void equalsAtComparesRowsInPlace() {
+		CompactWordList a = CompactWordList.copyOf(words("apple", "banana", "cherry"));
+		CompactWordList b = CompactWordList.copyOf(words("banana", "cherries"));
+		assertTrue(a.equalsAt(1, b, 0));
+		assertFalse(a.equalsAt(0, b, 0));
+		assertFalse(a.equalsAt(2, b, 1));
+	}
+	
+	@Test
+	public void emptyInputGivesEmpty() {
+		assertSame(CompactWordList.EMPTY, CompactWordList.copyOf(Collections.<Word>emptyList()));
+		assertEquals(0, CompactWordList.EMPTY.size());
+	}
+	
+	@Test
+	public void outOfRangeIndexThrows() {
+		CompactWordList list = CompactWordList.copyOf(words("apple"));
+		try {
+			list.getString(1);
+			fail();
+		} catch (IndexOutOfBoundsException expected) {
+			// expected
+		}
+	}
+	
+	private static List<Word> words(String... words) {
+		List<Word> list = new ArrayList<>(words.length);
+		for (String word : words) list.add(new Word(word));
+		return list;
+	}
+}
@@ -0,0 +1,63 @@
+package com.example.roomwordsample;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ShardedWordDao.merge, which turns the shards' sorted results into one list in list order.
+ */
+public class ShardedWordDaoTest {
+	
+	@Test
+	public void mergeInterleavesSortedRuns() {
+		List<List<Word>> runs = Arrays.asList(
+				words("apple", "Cherry", "fig"),
+				words("banana", "date"),
+				words("éclair", "grape"));
+		assertEquals(Arrays.asList("apple", "banana", "Cherry", "date", "éclair", "fig", "grape"),
+				strings(ShardedWordDao.merge(runs, WordSortKey.ORDER, Integer.MAX_VALUE)));
+	}
+	
+	@Test
+	public void mergeStopsAtLimit() {
+		List<List<Word>> runs = Arrays.asList(words("a", "c", "e"), words("b", "d", "f"));
+		assertEquals(Arrays.asList("a", "b", "c", "d"),
+				strings(ShardedWordDao.merge(runs, WordSortKey.ORDER, 4)));
+		assertTrue(ShardedWordDao.merge(runs, WordSortKey.ORDER, 0).isEmpty());
+	}
+	
+	@Test
+	public void mergeSkipsEmptyRuns() {
+		List<List<Word>> runs = Arrays.asList(Collections.<Word>emptyList(), words("b", "c"),
+				Collections.<Word>emptyList(), words("a"));
+		assertEquals(Arrays.asList("a", "b", "c"),
+				strings(ShardedWordDao.merge(runs, WordSortKey.ORDER, Integer.MAX_VALUE)));
+		assertTrue(ShardedWordDao.merge(Collections.<List<Word>>emptyList(), WordSortKey.ORDER, 10).isEmpty());
+	}
+	
+	@Test
+	public void mergeKeepsTiesFromEveryRun() {
+		List<List<Integer>> runs = Arrays.asList(Arrays.asList(1, 2, 2), Arrays.asList(2, 3));
+		assertEquals(Arrays.asList(1, 2, 2, 2, 3),
+				ShardedWordDao.merge(runs, Integer::compare, Integer.MAX_VALUE));
+	}
+	
+	private static List<Word> words(String... words) {
+		ArrayList<Word> list = new ArrayList<>(words.length);
+		for (String word : words) list.add(new Word(word));
+		return list;
+	}
+	
+	private static List<String> strings(List<Word> words) {
+		ArrayList<String> list = new ArrayList<>(words.size());
+		for (Word word : words) list.add(word.getWord());
+		return list;
+	}
+}
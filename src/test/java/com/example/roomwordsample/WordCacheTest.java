@@ -0,0 +1,72 @@
+package com.example.roomwordsample;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * WordCache against a table written by the repository's batches and by other writers
+ * (a purge, an import) whose changes arrive in the same coalesced invalidation.
+ */
+public class WordCacheTest {
+	
+	private final WordCache mCache = new WordCache(WordCache.DEFAULT_MAX_BYTES);
+	
+	@Test
+	public void localInsertIsMergedBeforeTheInvalidation() {
+		mCache.putFirst(mCache.getGeneration(), words("apple", "cherry"), true);
+		mCache.onLocalWriteCommitted(words("banana"), new long[]{3});
+		assertEquals(Arrays.asList("apple", "banana", "cherry"), strings(mCache.getFirst(10)));
+	}
+	
+	@Test
+	public void foreignDeleteInTheSameInvalidationIsNotHidden() {
+		mCache.putFirst(mCache.getGeneration(), words("apple", "banana", "cherry"), true);
+		// Our batch commits, then a purge chunk deletes "banana" before Room refreshes:
+		// both land in one invalidation.
+		mCache.onLocalWriteCommitted(words("date"), new long[]{4});
+		mCache.onTableInvalidated();
+		assertNull(mCache.getFirst(10));
+		
+		mCache.putFirst(mCache.getGeneration(), words("apple", "cherry", "date"), true);
+		assertEquals(Arrays.asList("apple", "cherry", "date"), strings(mCache.getFirst(10)));
+	}
+	
+	@Test
+	public void pageReadBeforeAWriteIsNotStored() {
+		long generation = mCache.getGeneration();
+		// The pager reads the first page, then a delete commits and invalidates.
+		List<Word> stale = words("apple", "banana");
+		mCache.onTableInvalidated();
+		mCache.putFirst(generation, stale, true);
+		assertNull(mCache.getFirst(10));
+	}
+	
+	@Test
+	public void pageReadBeforeALocalInsertIsNotAppended() {
+		mCache.putFirst(mCache.getGeneration(), words("apple", "banana"), false);
+		long generation = mCache.getGeneration();
+		// "cherry" lands past the cached prefix, so the merge leaves it to the database,
+		// and the page read before the commit doesn't have it.
+		mCache.onLocalWriteCommitted(words("cherry"), new long[]{3});
+		mCache.putAfter(generation, new Word("banana"), words("date"), true);
+		assertNull(mCache.getAfter(new Word("banana"), 10));
+	}
+	
+	private static List<Word> words(String... words) {
+		List<Word> list = new ArrayList<>(words.length);
+		for (String word : words) list.add(new Word(word));
+		return list;
+	}
+	
+	private static List<String> strings(List<Word> words) {
+		List<String> list = new ArrayList<>(words.size());
+		for (Word word : words) list.add(word.getWord());
+		return list;
+	}
+}
@@ -0,0 +1,282 @@
+package com.example.roomwordsample;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Benchmarks for the WordDao and WordRepository hot paths, run on the host JVM against an
+ * in-memory Room database through Robolectric. The database is built like the app's (see
+ * WordRoomDatabase.unseededBuilder), so writes pay for the same triggers.
+ *
+ * Skipped unless run with -Dbenchmark=true (or -Dbenchmark.sizes=...), so the normal unit
+ * test run doesn't build million-row tables.
+ *
+ * Results are written as JSON to build/benchmark-results/word-benchmarks.json (override with
+ * -Dbenchmark.output=...) so runs from different builds can be compared. Table sizes default to
+ * 1k, 100k and 1M rows; pass -Dbenchmark.sizes=1000,100000 for a quicker run. The storage
+ * profile comparison uses -Dbenchmark.profileRows rows (100k by default).
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class WordDaoBenchmark {
+	
+	private static final int WARMUP_ITERATIONS = 2;
+	private static final int ITERATIONS = 5;
+	private static final int SINGLE_INSERTS = 1000;
+	private static final int FILL_CHUNK = 10_000;
+	
+	private static final List<Result> sResults = new ArrayList<>();
+	
+	private WordRoomDatabase mDb;
+	private WordDao mDao;
+	
+	@BeforeClass
+	public static void onlyWhenAskedFor() {
+		Assume.assumeTrue("Run with -Dbenchmark=true",
+				Boolean.getBoolean("benchmark") || System.getProperty("benchmark.sizes") != null);
+	}
+	
+	@Before
+	public void createDb() {
+		Context context = ApplicationProvider.getApplicationContext();
+		mDb = WordRoomDatabase.unseededBuilder(context, null, StorageProfile.READ_HEAVY)
+				.allowMainThreadQueries()
+				.build();
+		mDao = mDb.wordDao();
+	}
+	
+	@After
+	public void closeDb() {
+		mDb.close();
+	}
+	
+	@Test
+	public void insertSingle() {
+		final List<Word> words = words(0, SINGLE_INSERTS);
+		measure("insert_single", SINGLE_INSERTS, mDao::deleteAll, () -> {
+			for (Word word : words) mDao.insert(word);
+		});
+	}
+	
+	@Test
+	public void insertBatched() {
+		for (final int rows : sizes()) {
+			measure("insert_all", rows, mDao::deleteAll, () -> fill(rows));
+		}
+	}
+	
+	@Test
+	public void queryAlphabetized() {
+		for (final int rows : sizes()) {
+			mDao.deleteAll();
+			fill(rows);
+			measure("query_alphabetized", rows, null,
+					() -> assertEquals(rows, mDao.loadAlphabetizedWords().size()));
+		}
+	}
+	
+	@Test
+	public void queryFirstPage() {
+		for (final int rows : sizes()) {
+			mDao.deleteAll();
+			fill(rows);
+			measure("query_first_page", rows, null,
+					() -> mDao.getFirstWords(WordPager.DEFAULT_PAGE_SIZE));
+		}
+	}
+	
+	@Test
+	public void deleteAll() {
+		for (final int rows : sizes()) {
+			measure("delete_all", rows, () -> fill(rows), mDao::deleteAll);
+		}
+	}
+	
+	/*Time from submitting a single insert to the write executor until it has committed.*/
+	@Test
+	public void repositoryWriteLatency() {
+		final List<Word> words = words(0, SINGLE_INSERTS);
+		measure("write_executor_insert", SINGLE_INSERTS, mDao::deleteAll, () -> {
+			try {
+				for (Word word : words) {
+					Future<?> done = WordRoomDatabase.databaseWriteExecutor.submit(() -> mDao.insert(word));
+					done.get();
+				}
+			} catch (Exception e) {
+				throw new AssertionError(e);
+			}
+		});
+	}
+	
+	/*The same inserts through the repository's coalescing writer: all words are queued at
+	once and the clock stops when the last batch has committed.*/
+	@Test
+	public void repositoryBatchedWriteLatency() {
+		final List<Word> words = words(0, SINGLE_INSERTS);
+		measure("write_batcher_insert", SINGLE_INSERTS, mDao::deleteAll, () -> {
+			final CountDownLatch committed = new CountDownLatch(words.size());
+			WordWriteBatcher batcher = new WordWriteBatcher(mDao, WordRoomDatabase.databaseWriteExecutor,
+					WordWriteBatcher.DEFAULT_WINDOW_MILLIS, WordWriteBatcher.DEFAULT_MAX_BATCH,
+					new WordWriteBatcher.Listener() {
+						@Override
+						public void onBatchStarting(List<Word> batch) {}
+						
+						@Override
+						public void onBatchCommitted(List<Word> batch, long[] rowIds) {
+							for (int i = 0; i < batch.size(); i++) committed.countDown();
+						}
+					});
+			for (Word word : words) batcher.add(word);
+			try {
+				assertTrue(committed.await(60, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				throw new AssertionError(e);
+			}
+		});
+	}
+	
+	/*Write and read throughput on a file-backed database under each storage preset.*/
+	@Test
+	public void storageProfiles() {
+		final int rows = Integer.getInteger("benchmark.profileRows", 100_000);
+		Context context = ApplicationProvider.getApplicationContext();
+		for (StorageProfile profile : new StorageProfile[]{
+				StorageProfile.DEFAULT, StorageProfile.INGEST_HEAVY, StorageProfile.READ_HEAVY}) {
+			String name = "benchmark-" + profile.name;
+			context.deleteDatabase(name);
+			WordRoomDatabase db = WordRoomDatabase.unseededBuilder(context, name, profile)
+					.allowMainThreadQueries()
+					.build();
+			WordRoomDatabase previous = mDb;
+			mDb = db;
+			mDao = db.wordDao();
+			try {
+				measure("insert_all[" + profile.name + "]", rows, mDao::deleteAll, () -> fill(rows));
+				measure("insert_single[" + profile.name + "]", SINGLE_INSERTS, mDao::deleteAll, () -> {
+					for (Word word : words(0, SINGLE_INSERTS)) mDao.insert(word);
+				});
+				mDao.deleteAll();
+				fill(rows);
+				measure("query_alphabetized[" + profile.name + "]", rows, null,
+						() -> assertEquals(rows, mDao.loadAlphabetizedWords().size()));
+				measure("query_first_page[" + profile.name + "]", rows, null,
+						() -> mDao.getFirstWords(WordPager.DEFAULT_PAGE_SIZE));
+			} finally {
+				db.close();
+				context.deleteDatabase(name);
+				mDb = previous;
+				mDao = previous.wordDao();
+			}
+		}
+	}
+	
+	@AfterClass
+	public static void writeResults() throws IOException {
+		if (sResults.isEmpty()) return; // skipped
+		File file = new File(System.getProperty("benchmark.output",
+				"build/benchmark-results/word-benchmarks.json"));
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Cannot create " + dir);
+		}
+		try (Writer out = new FileWriter(file)) {
+			out.write("{\"benchmarks\":[\n");
+			synchronized (sResults) {
+				for (int i = 0; i < sResults.size(); i++) {
+					out.write(sResults.get(i).toJson());
+					out.write(i + 1 < sResults.size() ? ",\n" : "\n");
+				}
+			}
+			out.write("]}\n");
+		}
+	}
+	
+	/* ---- helpers ---- */
+	
+	private void measure(String name, int rows, Runnable setup, Runnable body) {
+		long[] samples = new long[ITERATIONS];
+		for (int i = 0; i < WARMUP_ITERATIONS + ITERATIONS; i++) {
+			if (setup != null) setup.run();
+			long start = System.nanoTime();
+			body.run();
+			long elapsed = System.nanoTime() - start;
+			if (i >= WARMUP_ITERATIONS) samples[i - WARMUP_ITERATIONS] = elapsed;
+		}
+		Arrays.sort(samples);
+		Result result = new Result(name, rows, samples);
+		synchronized (sResults) {
+			sResults.add(result);
+		}
+	}
+	
+	private void fill(int rows) {
+		mDb.runInTransaction(() -> {
+			for (int from = 0; from < rows; from += FILL_CHUNK) {
+				mDao.insertAll(words(from, Math.min(rows, from + FILL_CHUNK)));
+			}
+		});
+	}
+	
+	/*Distinct words in scrambled order: multiplying by an odd constant is a bijection mod 2^32.*/
+	private static List<Word> words(int from, int to) {
+		ArrayList<Word> words = new ArrayList<>(to - from);
+		for (long i = from; i < to; i++) {
+			words.add(new Word("w" + Long.toString((i * 2654435761L) & 0xffffffffL, 36)));
+		}
+		return words;
+	}
+	
+	private static int[] sizes() {
+		String[] parts = System.getProperty("benchmark.sizes", "1000,100000,1000000").split(",");
+		int[] sizes = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) sizes[i] = Integer.parseInt(parts[i].trim());
+		return sizes;
+	}
+	
+	private static final class Result {
+		final String name;
+		final int rows;
+		final long[] sortedNanos;
+		
+		Result(String name, int rows, long[] sortedNanos) {
+			this.name = name;
+			this.rows = rows;
+			this.sortedNanos = sortedNanos;
+		}
+		
+		String toJson() {
+			long median = sortedNanos[sortedNanos.length / 2];
+			return String.format(Locale.US,
+					"{\"name\":\"%s\",\"rows\":%d,\"iterations\":%d,\"min_ns\":%d,\"median_ns\":%d,"
+							+ "\"max_ns\":%d,\"rows_per_sec\":%.1f}",
+					name, rows, sortedNanos.length, sortedNanos[0], median,
+					sortedNanos[sortedNanos.length - 1], median == 0 ? 0.0 : rows * 1e9 / median);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package com.example.roomwordsample;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The confirm path of WordDuplicateFilter: words the Bloom filter says may be present are
+ * checked against the table on the writer, behind the writes already queued there.
+ * The DAO is a proxy over a TreeSet holding the primary keys.
+ */
+public class WordDuplicateFilterTest {
+	
+	private final TreeSet<String> mTable = new TreeSet<>();
+	private final QueueExecutor mReader = new QueueExecutor();
+	private final QueueExecutor mWriter = new QueueExecutor();
+	private final List<String> mAccepted = new ArrayList<>();
+	private final List<String> mRejected = new ArrayList<>();
+	private final WordDuplicateFilter.Sink mSink = new WordDuplicateFilter.Sink() {
+		@Override
+		public void accept(Word word) {
+			mAccepted.add(word.getWord());
+		}
+		
+		@Override
+		public void reject(Word word) {
+			mRejected.add(word.getWord());
+		}
+	};
+	private WordDuplicateFilter mFilter;
+	
+	@Before
+	public void buildFilter() {
+		mTable.addAll(Arrays.asList("apple", "banana", "cherry"));
+		mFilter = new WordDuplicateFilter(fakeDao(), mReader, mWriter);
+		mFilter.start();
+		mReader.runAll();
+		assertTrue(mFilter.report().contains("ready"));
+	}
+	
+	@Test
+	public void presentWordIsRejectedOnTheWriter() {
+		mFilter.offer(new Word("apple"), mSink);
+		assertTrue(mAccepted.isEmpty());
+		assertFalse(mReader.hasPending());
+		mWriter.runAll();
+		assertEquals(Arrays.asList("apple"), mRejected);
+		assertTrue(mAccepted.isEmpty());
+	}
+	
+	@Test
+	public void wordDeletedBeforeTheCheckIsAccepted() {
+		// A delete already queued on the writer when the word is added again.
+		mWriter.execute(() -> mTable.remove("banana"));
+		mFilter.offer(new Word("banana"), mSink);
+		mWriter.runAll();
+		assertEquals(Arrays.asList("banana"), mAccepted);
+		assertTrue(mRejected.isEmpty());
+	}
+	
+	@Test
+	public void suspectsAreCheckedInOneBatch() {
+		mFilter.offer(new Word("apple"), mSink);
+		mFilter.offer(new Word("cherry"), mSink);
+		assertEquals(1, mWriter.size());
+		mWriter.runAll();
+		assertEquals(Arrays.asList("apple", "cherry"), mRejected);
+	}
+	
+	@Test
+	public void wordsBeforeTheFirstBuildPassUnchecked() {
+		WordDuplicateFilter filter = new WordDuplicateFilter(fakeDao(), mReader, mWriter);
+		filter.offer(new Word("apple"), mSink);
+		assertEquals(Arrays.asList("apple"), mAccepted);
+		assertFalse(mWriter.hasPending());
+	}
+	
+	private WordDao fakeDao() {
+		return (WordDao) Proxy.newProxyInstance(WordDao.class.getClassLoader(), new Class<?>[]{WordDao.class},
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "countWords":
+							return mTable.size();
+						case "getWordKeysAfter": {
+							List<String> keys = new ArrayList<>();
+							for (String word : mTable.tailSet((String) args[0], false)) {
+								if (keys.size() == (Integer) args[1]) break;
+								keys.add(word);
+							}
+							return keys;
+						}
+						case "findExistingWords": {
+							List<String> existing = new ArrayList<>();
+							for (Object word : (List<?>) args[0]) if (mTable.contains(word)) existing.add((String) word);
+							return existing;
+						}
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+	
+	/*Runs tasks only when asked, in order, like a single-threaded executor.*/
+	private static final class QueueExecutor implements Executor {
+		private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+		
+		@Override
+		public void execute(Runnable task) {
+			mTasks.add(task);
+		}
+		
+		boolean hasPending() {return !mTasks.isEmpty();}
+		
+		int size() {return mTasks.size();}
+		
+		void runAll() {
+			Runnable task;
+			while ((task = mTasks.poll()) != null) task.run();
+		}
+	}
+}
@@ -0,0 +1,119 @@
+package com.example.roomwordsample;
+
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * How WordPendingWrites merges words that aren't committed yet into a list from the database.
+ * Runs on Robolectric's main looper, where the overlay does its work.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class WordPendingWritesTest {
+	
+	private final WordPendingWrites mPending = new WordPendingWrites();
+	private final MutableLiveData<List<Word>> mBase = new MutableLiveData<>();
+	private final List<List<Word>> mEmitted = new ArrayList<>();
+	
+	@Test
+	public void pendingWordIsMergedInListOrder() {
+		observe(WordPendingWrites.WHOLE_TABLE);
+		mBase.setValue(words("apple", "cherry"));
+		mPending.add(new Word("Banana"));
+		assertEquals(Arrays.asList("apple", "Banana", "cherry"), latest());
+	}
+	
+	@Test
+	public void emptyWholeTableShowsPendingWords() {
+		observe(WordPendingWrites.WHOLE_TABLE);
+		mBase.setValue(Collections.<Word>emptyList());
+		mPending.add(new Word("fig"));
+		assertEquals(Arrays.asList("fig"), latest());
+	}
+	
+	@Test
+	public void wordsOutsideTheWindowAreLeftOut() {
+		observe(new WordPendingWrites.Bounds() {
+			@Override
+			public boolean isStartReached() {return false;}
+			
+			@Override
+			public boolean isEndReached() {return false;}
+		});
+		mBase.setValue(words("cherry", "fig"));
+		mPending.add(new Word("apple"));
+		mPending.add(new Word("date"));
+		mPending.add(new Word("grape"));
+		assertEquals(Arrays.asList("cherry", "date", "fig"), latest());
+	}
+	
+	@Test
+	public void committedWordLeavesOnceTheListHasIt() {
+		observe(WordPendingWrites.WHOLE_TABLE);
+		mBase.setValue(words("apple"));
+		Word banana = new Word("banana");
+		mPending.add(banana);
+		mPending.onCommitted(Collections.singletonList(banana));
+		mBase.setValue(words("apple", "banana"));
+		assertEquals(Arrays.asList("apple", "banana"), latest());
+		// Reconciled: deleting it from the table now takes it out of the list too.
+		mBase.setValue(words("apple"));
+		assertEquals(Arrays.asList("apple"), latest());
+	}
+	
+	@Test
+	public void uncommittedWordStaysWhenTheListAlreadyHasIt() {
+		observe(WordPendingWrites.WHOLE_TABLE);
+		Word apple = new Word("apple");
+		mPending.add(apple);
+		mBase.setValue(words("apple"));
+		assertEquals(Arrays.asList("apple"), latest());
+		// Still pending: a reload without it keeps showing it.
+		mBase.setValue(Collections.<Word>emptyList());
+		assertEquals(Arrays.asList("apple"), latest());
+	}
+	
+	@Test
+	public void failedAndRejectedWordsAreTakenOut() {
+		observe(WordPendingWrites.WHOLE_TABLE);
+		mBase.setValue(words("cherry"));
+		Word apple = new Word("apple");
+		Word banana = new Word("banana");
+		mPending.add(apple);
+		mPending.add(banana);
+		assertEquals(Arrays.asList("apple", "banana", "cherry"), latest());
+		mPending.onFailed(Collections.singletonList(apple));
+		assertEquals(Arrays.asList("banana", "cherry"), latest());
+		mPending.onRejected(banana);
+		assertEquals(Arrays.asList("cherry"), latest());
+	}
+	
+	private void observe(WordPendingWrites.Bounds bounds) {
+		LiveData<List<Word>> overlay = mPending.overlay(mBase, bounds);
+		overlay.observeForever(mEmitted::add);
+	}
+	
+	private List<String> latest() {
+		List<String> words = new ArrayList<>();
+		for (Word word : mEmitted.get(mEmitted.size() - 1)) words.add(word.getWord());
+		return words;
+	}
+	
+	private static List<Word> words(String... words) {
+		List<Word> list = new ArrayList<>(words.length);
+		for (String word : words) list.add(new Word(word));
+		return list;
+	}
+}
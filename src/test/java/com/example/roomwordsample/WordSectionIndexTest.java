@@ -0,0 +1,56 @@
+package com.example.roomwordsample;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * WordSectionIndex positions, built from per-section counts as WordDao.loadSectionCounts()
+ * returns them.
+ */
+public class WordSectionIndexTest {
+	
+	private final WordSectionIndex mIndex = WordSectionIndex.of(Arrays.asList(
+			new WordSectionCount("", 1),
+			new WordSectionCount("a", 3),
+			new WordSectionCount("b", 2)));
+	
+	@Test
+	public void sectionsStartAfterTheOnesBefore() {
+		assertEquals(3, mIndex.getSectionCount());
+		assertEquals(6, mIndex.getTotal());
+		assertEquals(0, mIndex.getPositionForSection(0));
+		assertEquals(1, mIndex.getPositionForSection(1));
+		assertEquals(4, mIndex.getPositionForSection(2));
+	}
+	
+	@Test
+	public void positionsMapToTheirSection() {
+		int[] expected = {0, 1, 1, 1, 2, 2};
+		for (int position = 0; position < expected.length; position++) {
+			assertEquals("position " + position, expected[position], mIndex.getSectionForPosition(position));
+		}
+		// Past the end: the last section.
+		assertEquals(2, mIndex.getSectionForPosition(100));
+	}
+	
+	@Test
+	public void labelsAndStartKeys() {
+		assertEquals("#", mIndex.getLabel(0));
+		assertEquals("A", mIndex.getLabel(1));
+		assertEquals("b", mIndex.getStartKey(2));
+	}
+	
+	@Test
+	public void noCountsIsEmpty() {
+		assertSame(WordSectionIndex.EMPTY, WordSectionIndex.of(null));
+		assertSame(WordSectionIndex.EMPTY, WordSectionIndex.of(Collections.<WordSectionCount>emptyList()));
+		assertEquals(0, WordSectionIndex.EMPTY.getSectionCount());
+		assertEquals(0, WordSectionIndex.EMPTY.getTotal());
+		assertEquals(0, WordSectionIndex.EMPTY.getSectionForPosition(0));
+	}
+}
@@ -0,0 +1,61 @@
+package com.example.roomwordsample;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * WordSortKey must order strings the way SQLite compares TEXT (UTF-8 bytes, so code points),
+ * which is what the keyset queries and the in-memory merges rely on.
+ */
+public class WordSortKeyTest {
+	
+	private static final String[] SAMPLES = {
+			"", "a", "ab", "b", "B", "z", "é", "\u4e00", "\ud7ff", "\ue000", "\uff21", "\ufffd",
+			"\ud83d\ude00", "\ud83d\ude00a", "\ud800\udc00", "\udbff\udfff", "a\ud83d\ude00", "a\ufffd",
+	};
+	
+	@Test
+	public void compareBinaryFollowsCodePointOrder() {
+		for (String a : SAMPLES) {
+			for (String b : SAMPLES) {
+				assertEquals(a + " vs " + b, Integer.signum(compareCodePoints(a, b)),
+						Integer.signum(WordSortKey.compareBinary(a, b)));
+			}
+		}
+	}
+	
+	@Test
+	public void compareBinaryPutsSurrogatePairsAfterTheRestOfTheBmp() {
+		// UTF-16 order says otherwise: 0xd83d < 0xe000 and < 0xfffd.
+		assertTrue("\ue000".compareTo("\ud83d\ude00") > 0);
+		assertTrue(WordSortKey.compareBinary("\ue000", "\ud83d\ude00") < 0);
+		assertTrue(WordSortKey.compareBinary("\ufffd", "\ud83d\ude00") < 0);
+		assertTrue(WordSortKey.compareBinary("\ud83d\ude00", "\ufffd") > 0);
+	}
+	
+	@Test
+	public void compareBinaryPutsPrefixFirst() {
+		assertTrue(WordSortKey.compareBinary("app", "apple") < 0);
+		assertTrue(WordSortKey.compareBinary("apple", "app") > 0);
+		assertEquals(0, WordSortKey.compareBinary("apple", "apple"));
+	}
+	
+	@Test
+	public void compareBreaksTiesOnTheWord() {
+		assertEquals(WordSortKey.of("Eclair"), WordSortKey.of("\u00c9clair"));
+		assertTrue(WordSortKey.ORDER.compare(new Word("Eclair"), new Word("\u00c9clair")) < 0);
+		assertTrue(WordSortKey.ORDER.compare(new Word("eclair"), new Word("Eclair")) > 0);
+		assertTrue(WordSortKey.ORDER.compare(new Word("Eclair"), new Word("apple")) > 0);
+	}
+	
+	private static int compareCodePoints(String a, String b) {
+		int[] x = a.codePoints().toArray();
+		int[] y = b.codePoints().toArray();
+		for (int i = 0; i < Math.min(x.length, y.length); i++) {
+			if (x[i] != y[i]) return Integer.compare(x[i], y[i]);
+		}
+		return Integer.compare(x.length, y.length);
+	}
+}
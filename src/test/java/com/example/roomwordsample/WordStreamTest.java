@@ -0,0 +1,195 @@
+package com.example.roomwordsample;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * WordStream's backpressure modes. Deliveries run on a queue the test drains by hand, so
+ * "the subscriber is busy" is simply "the queue hasn't been run yet".
+ */
+public class WordStreamTest {
+	
+	private final QueueExecutor mScheduler = new QueueExecutor();
+	private final List<Integer> mReceived = new ArrayList<>();
+	private final List<Exception> mErrors = new ArrayList<>();
+	private final WordStream.Subscriber<Integer> mSubscriber = new WordStream.Subscriber<Integer>() {
+		@Override
+		public void onNext(Integer value) {
+			mReceived.add(value);
+		}
+		
+		@Override
+		public void onError(Exception e) {
+			mErrors.add(e);
+		}
+	};
+	
+	@Test
+	public void latestKeepsOnlyTheNewestPendingValue() {
+		WordStream<Integer> stream = new WordStream<>(null);
+		WordStream<Integer>.Subscription subscription =
+				stream.subscribe(mSubscriber, mScheduler, WordStream.Backpressure.LATEST);
+		stream.publish(1);
+		stream.publish(2);
+		stream.publish(3);
+		mScheduler.runAll();
+		assertEquals(Arrays.asList(3), mReceived);
+		assertEquals(2, subscription.getDroppedCount());
+		
+		stream.publish(4);
+		mScheduler.runAll();
+		assertEquals(Arrays.asList(3, 4), mReceived);
+	}
+	
+	@Test
+	public void dropIgnoresValuesWhileBusy() {
+		WordStream<Integer> stream = new WordStream<>(null);
+		WordStream<Integer>.Subscription subscription =
+				stream.subscribe(mSubscriber, mScheduler, WordStream.Backpressure.DROP);
+		stream.publish(1);
+		stream.publish(2);
+		stream.publish(3);
+		mScheduler.runAll();
+		assertEquals(Arrays.asList(1), mReceived);
+		assertEquals(2, subscription.getDroppedCount());
+		
+		// Idle again: the next value goes through.
+		stream.publish(4);
+		mScheduler.runAll();
+		assertEquals(Arrays.asList(1, 4), mReceived);
+	}
+	
+	@Test
+	public void bufferDeliversEveryValueInOrder() {
+		WordStream<Integer> stream = new WordStream<>(null);
+		WordStream<Integer>.Subscription subscription =
+				stream.subscribe(mSubscriber, mScheduler, WordStream.Backpressure.BUFFER, 3);
+		stream.publish(1);
+		stream.publish(2);
+		stream.publish(3);
+		mScheduler.runAll();
+		assertEquals(Arrays.asList(1, 2, 3), mReceived);
+		assertEquals(0, subscription.getDroppedCount());
+		assertTrue(mErrors.isEmpty());
+	}
+	
+	@Test
+	public void bufferFailsPastCapacity() {
+		WordStream<Integer> stream = new WordStream<>(null);
+		WordStream<Integer>.Subscription subscription =
+				stream.subscribe(mSubscriber, mScheduler, WordStream.Backpressure.BUFFER, 2);
+		stream.publish(1);
+		stream.publish(2);
+		stream.publish(3);
+		mScheduler.runAll();
+		assertTrue(subscription.isCancelled());
+		assertTrue(mReceived.isEmpty());
+		assertEquals(1, mErrors.size());
+		assertTrue(mErrors.get(0) instanceof WordStream.BufferOverflowException);
+		
+		stream.publish(4);
+		mScheduler.runAll();
+		assertTrue(mReceived.isEmpty());
+	}
+	
+	@Test
+	public void subscriberExceptionCancelsTheSubscription() {
+		WordStream<Integer> stream = new WordStream<>(null);
+		WordStream<Integer>.Subscription subscription = stream.subscribe(new WordStream.Subscriber<Integer>() {
+			@Override
+			public void onNext(Integer value) {
+				throw new IllegalStateException("boom");
+			}
+			
+			@Override
+			public void onError(Exception e) {
+				mErrors.add(e);
+			}
+		}, mScheduler, WordStream.Backpressure.BUFFER);
+		stream.publish(1);
+		mScheduler.runAll();
+		assertTrue(subscription.isCancelled());
+		assertEquals(1, mErrors.size());
+	}
+	
+	@Test
+	public void sourceRunsOnlyWhileSubscribed() {
+		final List<String> calls = new ArrayList<>();
+		WordStream<Integer> stream = new WordStream<>(new WordStream.Source<Integer>() {
+			@Override
+			public void start(WordStream<Integer> stream) {
+				calls.add("start");
+			}
+			
+			@Override
+			public void stop() {
+				calls.add("stop");
+			}
+		});
+		WordStream<Integer>.Subscription first = stream.subscribe(mSubscriber, mScheduler, WordStream.Backpressure.LATEST);
+		WordStream<Integer>.Subscription second = stream.subscribe(mSubscriber, mScheduler, WordStream.Backpressure.DROP);
+		assertEquals(Arrays.asList("start"), calls);
+		first.cancel();
+		assertEquals(Arrays.asList("start"), calls);
+		second.cancel();
+		assertEquals(Arrays.asList("start", "stop"), calls);
+		assertFalse(mScheduler.hasPending());
+	}
+	
+	@Test
+	public void sourceStaysStartedWhenACancelRacesASubscribe() throws InterruptedException {
+		final boolean[] running = {false};
+		final WordStream<Integer> stream = new WordStream<>(new WordStream.Source<Integer>() {
+			@Override
+			public void start(WordStream<Integer> stream) {
+				running[0] = true;
+			}
+			
+			@Override
+			public void stop() {
+				running[0] = false;
+			}
+		});
+		for (int round = 0; round < 2000; round++) {
+			final WordStream<Integer>.Subscription leaving =
+					stream.subscribe(mSubscriber, mScheduler, WordStream.Backpressure.LATEST);
+			final List<WordStream<Integer>.Subscription> staying = new ArrayList<>(1);
+			Thread subscriber = new Thread(() ->
+					staying.add(stream.subscribe(mSubscriber, mScheduler, WordStream.Backpressure.LATEST)));
+			subscriber.start();
+			leaving.cancel();
+			subscriber.join();
+			synchronized (stream) {
+				assertTrue("round " + round, running[0]);
+			}
+			staying.get(0).cancel();
+			assertFalse(running[0]);
+		}
+	}
+	
+	/*Runs tasks only when asked, in order.*/
+	private static final class QueueExecutor implements Executor {
+		private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+		
+		@Override
+		public void execute(Runnable task) {
+			mTasks.add(task);
+		}
+		
+		boolean hasPending() {return !mTasks.isEmpty();}
+		
+		void runAll() {
+			Runnable task;
+			while ((task = mTasks.poll()) != null) task.run();
+		}
+	}
+}